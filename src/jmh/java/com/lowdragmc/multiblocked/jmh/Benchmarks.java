@@ -0,0 +1,69 @@
+package com.lowdragmc.multiblocked.jmh;
+
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.lowdragmc.multiblocked.api.capability.CommonCapabilityProxyHolder;
+import com.lowdragmc.multiblocked.api.capability.ICapabilityProxyHolder;
+import com.lowdragmc.multiblocked.api.capability.IO;
+import com.lowdragmc.multiblocked.api.capability.MultiblockCapability;
+import com.lowdragmc.multiblocked.api.capability.proxy.CapabilityProxy;
+import com.lowdragmc.multiblocked.common.capability.ItemMultiblockCapability;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.Registry;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+import net.minecraftforge.items.IItemHandler;
+
+import javax.annotation.Nullable;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Shared setup of the benchmarks. Vanilla registries are bootstrapped without a game client or server.
+ * <br>
+ * Run with {@code ./gradlew jmh -PjmhArgs="RecipeBenchmark -f 1"}, arguments are passed to the JMH runner.
+ */
+public final class Benchmarks {
+    private static boolean bootstrapped;
+
+    private Benchmarks() {
+    }
+
+    public static synchronized void bootstrap() {
+        if (!bootstrapped) {
+            SharedConstants.tryDetectVersion();
+            Bootstrap.bootStrap();
+            bootstrapped = true;
+        }
+    }
+
+    public static List<Item> items() {
+        return Registry.ITEM.stream().filter(item -> item != Items.AIR).toList();
+    }
+
+    /**
+     * Item proxy backed by the given handler instead of a block entity.
+     */
+    public static CapabilityProxy<?> itemProxy(IItemHandler handler) {
+        return new ItemMultiblockCapability.ItemCapabilityProxy(null) {
+            @Override
+            public IItemHandler getCapability(@Nullable String slotName) {
+                return handler;
+            }
+        };
+    }
+
+    public static ICapabilityProxyHolder holder(CapabilityProxy<?> input, CapabilityProxy<?> output) {
+        Table<IO, MultiblockCapability<?>, Long2ObjectOpenHashMap<CapabilityProxy<?>>> capabilities = Tables.newCustomTable(new EnumMap<>(IO.class), Object2ObjectOpenHashMap::new);
+        Long2ObjectOpenHashMap<CapabilityProxy<?>> inputs = new Long2ObjectOpenHashMap<>();
+        inputs.put(0, input);
+        Long2ObjectOpenHashMap<CapabilityProxy<?>> outputs = new Long2ObjectOpenHashMap<>();
+        outputs.put(1, output);
+        capabilities.put(IO.IN, ItemMultiblockCapability.CAP, inputs);
+        capabilities.put(IO.OUT, ItemMultiblockCapability.CAP, outputs);
+        return new CommonCapabilityProxyHolder(capabilities);
+    }
+}
@@ -0,0 +1,94 @@
+package com.lowdragmc.multiblocked.jmh;
+
+import com.lowdragmc.lowdraglib.utils.BlockInfo;
+import com.lowdragmc.lowdraglib.utils.TrackedDummyWorld;
+import com.lowdragmc.multiblocked.api.pattern.BlockPattern;
+import com.lowdragmc.multiblocked.api.pattern.FactoryBlockPattern;
+import com.lowdragmc.multiblocked.api.pattern.MultiblockState;
+import com.lowdragmc.multiblocked.api.pattern.Predicates;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.block.Blocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full pattern checking of a solid cube structure with the controller in its center, in an in-memory world.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternBenchmark {
+
+    /**
+     * edge length of the cube, odd so that the controller is centered.
+     */
+    @Param({"3", "15", "33"})
+    public int size;
+
+    private TrackedDummyWorld world;
+    private BlockPattern pattern;
+    private BlockPos center;
+    private MultiblockState state;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Benchmarks.bootstrap();
+        int half = size / 2;
+        FactoryBlockPattern factory = FactoryBlockPattern.start();
+        for (int aisle = 0; aisle < size; aisle++) {
+            String[] rows = new String[size];
+            for (int row = 0; row < size; row++) {
+                char[] chars = new char[size];
+                Arrays.fill(chars, 'X');
+                if (aisle == half && row == half) {
+                    chars[half] = 'C';
+                }
+                rows[row] = new String(chars);
+            }
+            factory.aisle(rows);
+        }
+        pattern = factory
+                .where('X', Predicates.blocks(Blocks.IRON_BLOCK))
+                .where('C', Predicates.blocks(Blocks.GOLD_BLOCK).setCenter())
+                .build();
+
+        world = new TrackedDummyWorld();
+        center = new BlockPos(0, 64, 0);
+        BlockInfo casing = BlockInfo.fromBlockState(Blocks.IRON_BLOCK.defaultBlockState());
+        for (int x = -half; x <= half; x++) {
+            for (int y = -half; y <= half; y++) {
+                for (int z = -half; z <= half; z++) {
+                    world.addBlock(center.offset(x, y, z), casing);
+                }
+            }
+        }
+        world.addBlock(center, BlockInfo.fromBlockState(Blocks.GOLD_BLOCK.defaultBlockState()));
+        state = new MultiblockState(world, center);
+        if (!checkPatternAt()) {
+            throw new IllegalStateException("benchmark structure is not formed");
+        }
+    }
+
+    @Benchmark
+    public boolean checkPatternAt() {
+        return pattern.checkPatternAt(state, center, Direction.NORTH, false, Collections.emptySet(), Collections.emptySet());
+    }
+}
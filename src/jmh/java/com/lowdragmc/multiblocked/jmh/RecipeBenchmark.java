@@ -0,0 +1,103 @@
+package com.lowdragmc.multiblocked.jmh;
+
+import com.lowdragmc.multiblocked.api.capability.ICapabilityProxyHolder;
+import com.lowdragmc.multiblocked.api.capability.IO;
+import com.lowdragmc.multiblocked.api.recipe.Recipe;
+import com.lowdragmc.multiblocked.api.recipe.RecipeMap;
+import com.lowdragmc.multiblocked.api.recipe.ingredient.SizedIngredient;
+import com.lowdragmc.multiblocked.common.capability.ItemMultiblockCapability;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.item.crafting.Ingredient;
+import net.minecraftforge.items.ItemStackHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recipe searching, matching and handling against item proxies backed by in-memory handlers.
+ * The matching recipe is the last one added, so a linear scan has to visit every recipe.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int recipes;
+
+    private RecipeMap recipeMap;
+    private Recipe target;
+    private ItemStack targetInput;
+    private ItemStackHandler input;
+    private ItemStackHandler output;
+    private ICapabilityProxyHolder holder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Benchmarks.bootstrap();
+        List<Item> items = Benchmarks.items();
+        recipeMap = new RecipeMap("benchmark");
+        for (int i = 0; i < recipes; i++) {
+            Item item = items.get(i % items.size());
+            int count = i / items.size() + 1;
+            recipeMap.start()
+                    .name("recipe_" + i)
+                    .duration(20)
+                    .inputItems(new SizedIngredient(Ingredient.of(item), count))
+                    .outputItems(new ItemStack(Items.DIAMOND))
+                    .buildAndRegister();
+            if (i == recipes - 1) {
+                target = recipeMap.getRecipe("recipe_" + i);
+                targetInput = new ItemStack(item, count);
+            }
+        }
+        recipeMap.rebuildIndex();
+        input = new ItemStackHandler(9);
+        output = new ItemStackHandler(9);
+        holder = Benchmarks.holder(Benchmarks.itemProxy(input), Benchmarks.itemProxy(output));
+        refill();
+    }
+
+    @Setup(Level.Invocation)
+    public void refill() {
+        input.setStackInSlot(0, targetInput.copy());
+        output.setStackInSlot(0, ItemStack.EMPTY);
+    }
+
+    @Benchmark
+    public List<Recipe> searchRecipe() {
+        return recipeMap.searchRecipe(holder);
+    }
+
+    @Benchmark
+    public boolean matchRecipe() {
+        return target.matchRecipe(holder);
+    }
+
+    @Benchmark
+    public boolean handleRecipe() {
+        return target.handleRecipeIO(IO.IN, holder) && target.handleRecipeIO(IO.OUT, holder);
+    }
+
+    @Benchmark
+    public Ingredient copyInner() {
+        return ItemMultiblockCapability.CAP.copyInner((Ingredient) target.inputs.get(ItemMultiblockCapability.CAP).get(0).content);
+    }
+}
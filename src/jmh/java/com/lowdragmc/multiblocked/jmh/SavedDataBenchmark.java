@@ -0,0 +1,69 @@
+package com.lowdragmc.multiblocked.jmh;
+
+import com.lowdragmc.multiblocked.api.pattern.MultiblockState;
+import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and loading the structures of a level, each structure is a 5x5x5 cube.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SavedDataBenchmark {
+
+    @Param({"100", "1000"})
+    public int structures;
+
+    private MultiblockWorldSavedData savedData;
+    private CompoundTag saved;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Benchmarks.bootstrap();
+        savedData = new MultiblockWorldSavedData();
+        for (int i = 0; i < structures; i++) {
+            BlockPos controllerPos = new BlockPos((i % 32) * 8, 64, (i / 32) * 8);
+            MultiblockState state = new MultiblockState(null, controllerPos);
+            state.cache = new LongOpenHashSet();
+            for (int x = -2; x <= 2; x++) {
+                for (int y = 0; y < 5; y++) {
+                    for (int z = 0; z < 5; z++) {
+                        state.cache.add(controllerPos.offset(x, y, z).asLong());
+                    }
+                }
+            }
+            savedData.addMapping(state);
+        }
+        saved = save();
+    }
+
+    @Benchmark
+    public CompoundTag save() {
+        return savedData.save(new CompoundTag());
+    }
+
+    @Benchmark
+    public MultiblockWorldSavedData load() {
+        return new MultiblockWorldSavedData(saved);
+    }
+}
@@ -11,6 +11,14 @@ import net.minecraftforge.fml.config.ModConfig;
  */
 public class MbdConfig {
     public static ForgeConfigSpec.IntValue naturesAura;
+    public static ForgeConfigSpec.IntValue asyncThreads;
+    public static ForgeConfigSpec.IntValue asyncPeriodBudget;
+    public static ForgeConfigSpec.IntValue revalidationBudget;
+    public static ForgeConfigSpec.IntValue parallelPatternThreshold;
+    public static ForgeConfigSpec.IntValue renderSectionBudget;
+    public static ForgeConfigSpec.IntValue geoLodDistance;
+    public static ForgeConfigSpec.IntValue particleViewDistance;
+    public static ForgeConfigSpec.IntValue maxAutoDesigns;
 
     public static void registerConfig(){
         ForgeConfigSpec.Builder commonBuilder = new ForgeConfigSpec.Builder();
@@ -23,5 +31,47 @@ public class MbdConfig {
                         "set the radius of aura value consumption.",
                         "Default: 20")
                 .defineInRange("Natures Aura Radius",20,1,64);
+        asyncThreads = builder.comment(
+                        "set the thread count of the async pool shared by all levels. (structure checking, proxy changes detection)",
+                        "0 - available processors - 1",
+                        "Default: 0")
+                .defineInRange("Async Threads",0,0,64);
+        asyncPeriodBudget = builder.comment(
+                        "set the time budget (ms) of an async period (250ms).",
+                        "components not handled in time will be continued in the next period.",
+                        "Default: 200")
+                .defineInRange("Async Period Budget",200,10,250);
+        revalidationBudget = builder.comment(
+                        "set the time budget (ms) per tick of checking structures in loaded chunks.",
+                        "structures are restored from the saved data at once, and checked in the following ticks.",
+                        "Default: 5")
+                .defineInRange("Revalidation Budget",5,1,50);
+        parallelPatternThreshold = builder.comment(
+                        "set the minimum block count of a pattern to be checked in parallel on the async pool.",
+                        "only patterns with fixed aisle repetitions and built-in predicates are split.",
+                        "0 - disabled",
+                        "Default: 0")
+                .defineInRange("Parallel Pattern Threshold",0,0,Integer.MAX_VALUE);
+        renderSectionBudget = builder.comment(
+                        "set the count of render sections rebuilt per frame when structures hide or show their blocks. (client)",
+                        "sections beyond the budget are rebuilt in the following frames.",
+                        "Default: 32")
+                .defineInRange("Render Section Budget",32,1,4096);
+        geoLodDistance = builder.comment(
+                        "set the distance (blocks) beyond which animated geo components render a baked mesh of the shared animation. (client)",
+                        "the baked mesh is refreshed every few ticks, so far components are animated at a lower rate.",
+                        "0 - disabled",
+                        "Default: 32")
+                .defineInRange("Geo LOD Distance",32,0,1024);
+        particleViewDistance = builder.comment(
+                        "set the distance (blocks) beyond which particle components don't emit their particles. (client)",
+                        "0 - unlimited",
+                        "Default: 64")
+                .defineInRange("Particle View Distance",64,0,1024);
+        maxAutoDesigns = builder.comment(
+                        "set the maximum count of designs generated from the aisle repetitions of a pattern. (previews, JEI / REI pages)",
+                        "if there are more combinations, the minimum, the maximum and a few representative ones are shown.",
+                        "Default: 32")
+                .defineInRange("Max Auto Designs",32,1,4096);
     }
 }
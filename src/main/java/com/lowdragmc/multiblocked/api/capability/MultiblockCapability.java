@@ -25,6 +25,7 @@ import net.minecraftforge.common.capabilities.Capability;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -77,6 +78,36 @@ public abstract class MultiblockCapability<T> implements JsonSerializer<T>, Json
         return copyInner((T) content);
     }
 
+    /**
+     * amount of the content, used by the read-only recipe matching {@link CapabilityProxy#simulateRecipe}.
+     * <br>
+     * -1 - simulating isn't supported, contents will be copied for matching.
+     */
+    public long getAmount(T content) {
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public final long getContentAmount(Object content) {
+        return getAmount((T) content);
+    }
+
+    /**
+     * keys of the content used by the recipe index {@link com.lowdragmc.multiblocked.api.recipe.RecipeIndex}. e.g. items of an ingredient, fluid of a fluid stack.
+     * <br>
+     * null - the content can't be indexed, recipes relying on it will always be searched.
+     */
+    @Nullable
+    public Collection<?> getIndexKeys(T content) {
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public final Collection<?> getContentIndexKeys(Object content) {
+        return getIndexKeys((T) content);
+    }
+
     /**
      * create a proxy of this block.
      */
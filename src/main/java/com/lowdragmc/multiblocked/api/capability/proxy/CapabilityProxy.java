@@ -1,6 +1,7 @@
 package com.lowdragmc.multiblocked.api.capability.proxy;
 
 
+import com.google.common.collect.MapMaker;
 import com.lowdragmc.lowdraglib.gui.modular.ModularUI;
 import com.lowdragmc.multiblocked.api.capability.ICapabilityProxyHolder;
 import com.lowdragmc.multiblocked.api.capability.IInnerCapabilityProvider;
@@ -12,15 +13,21 @@ import net.minecraft.core.Direction;
 import net.minecraftforge.common.capabilities.Capability;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * The Proxy of a specific capability that has been detected {@link MultiblockCapability}. Providing I/O and such features to a controller.
  */
 public abstract class CapabilityProxy<K> {
+    // recipe content -> scratch stack of the current thread, dropped with the content.
+    private static final ThreadLocal<Map<Object, Object>> SCRATCH = ThreadLocal.withInitial(() -> new MapMaker().concurrencyLevel(1).weakKeys().makeMap());
     public final MultiblockCapability<? super K> capability;
     public Direction facing;
     public Set<String> slots;
@@ -76,6 +83,49 @@ public abstract class CapabilityProxy<K> {
      */
     protected abstract List<K> handleRecipeInner(IO io, Recipe recipe, List<K> left, @Nullable String slotName, boolean simulate);
 
+    /**
+     * Read-only matching of the given contents, nothing should be copied or modified.
+     * Amounts this proxy is able to provide ({@link IO#IN}) or accept ({@link IO#OUT}) are subtracted from the remaining amounts.
+     * Only called if the capability supports it, see {@link MultiblockCapability#getAmount(Object)}.
+     * <br>
+     * The default implementation falls back to {@link #handleRecipeInner} with a copy of each unfinished content.
+     *
+     * @param io        the IO type of this recipe. always be one of the {@link IO#IN} or {@link IO#OUT}
+     * @param recipe    recipe.
+     * @param contents  contents to be matched, read only.
+     * @param remaining amounts still required, {@code remaining[offset + i]} belongs to {@code contents.get(i)}.
+     * @param offset    offset of the contents in remaining.
+     * @param slotName  specific slot name.
+     */
+    protected void simulateInner(IO io, Recipe recipe, List<?> contents, long[] remaining, int offset, @Nullable String slotName) {
+        for (int i = 0; i < contents.size(); i++) {
+            if (remaining[offset + i] > 0) {
+                List<K> left = new ArrayList<>(1);
+                left.add(copyContent(contents.get(i)));
+                if (handleRecipeInner(io, recipe, left, slotName, true) == null) {
+                    remaining[offset + i] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * A stack created from the content once per thread and reused by {@link #simulateInner}, which sets its amount before each call.
+     *
+     * @param content recipe content, compared by identity.
+     * @param factory creates the stack, shouldn't capture anything to keep lookups allocation free.
+     */
+    @SuppressWarnings("unchecked")
+    protected static <T, S> S scratchOf(T content, Function<? super T, ? extends S> factory) {
+        Map<Object, Object> scratches = SCRATCH.get();
+        Object scratch = scratches.get(content);
+        if (scratch == null) {
+            scratch = factory.apply(content);
+            scratches.put(content, scratch);
+        }
+        return (S) scratch;
+    }
+
     /**
      * Check whether scheduling recipe checking. Check to see if any changes have occurred.
      * Do not do anything that causes conflicts here.
@@ -95,14 +145,33 @@ public abstract class CapabilityProxy<K> {
         return handleRecipeInner(io, recipe, left.stream().map(this::copyContent).collect(Collectors.toList()), slotName, true);
     }
 
+    public final void simulateRecipe(IO io, Recipe recipe, List<?> contents, long[] remaining, int offset, @Nullable String slotName) {
+        simulateInner(io, recipe, contents, remaining, offset, slotName);
+    }
+
     public final List<K> handleRecipe(IO io, Recipe recipe, List<?> left, @Nullable String slotName) {
         return handleRecipeInner(io, recipe, left.stream().map(this::copyContent).collect(Collectors.toList()), slotName, false);
     }
 
-    public final void updateChangedState(long periodID) {
+    /**
+     * Collect the index keys of all stored contents, see {@link MultiblockCapability#getIndexKeys(Object)}.
+     *
+     * @param collector key consumer.
+     * @return false - stored contents can't be listed, all indexed recipes of this capability will be searched.
+     */
+    public boolean collectIndexKeys(Consumer<Object> collector) {
+        return false;
+    }
+
+    /**
+     * @return whether the contents have changed.
+     */
+    public final boolean updateChangedState(long periodID) {
         if (hasInnerChanged() || periodID < latestPeriodID) {
             latestPeriodID = periodID;
+            return true;
         }
+        return false;
     }
 
     public void preWorking(ICapabilityProxyHolder holder, IO io, Recipe recipe) {
@@ -64,6 +64,23 @@ public abstract class CapabilityTrait implements IInnerCapabilityProvider {
         }
     }
 
+    /**
+     * Whether all content changes are reported by {@link #notifyContentChanged()}.
+     * Proxies of traits that can't notify are polled by controllers instead.
+     */
+    public boolean canNotifyChanges() {
+        return false;
+    }
+
+    /**
+     * Wake up the recipe logic of controllers using this component, should be called whenever contents changed.
+     */
+    public void notifyContentChanged() {
+        if (component != null) {
+            component.notifyContentChanged();
+        }
+    }
+
     public void readFromNBT(CompoundTag compound) {
     }
 
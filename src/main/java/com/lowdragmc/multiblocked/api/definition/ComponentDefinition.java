@@ -46,6 +46,8 @@ public class ComponentDefinition {
     public JsonObject traits;
     public String uiLocation;
     private CompoundTag ui;
+    // server ticks between updates, 0 - only updated when woken
+    public int tickInterval = 1;
 
     // ******* status properties ******* //
     public final Map<String, StatusProperties> status;
@@ -190,6 +192,7 @@ public class ComponentDefinition {
         }
 
         uiLocation = GsonHelper.getAsString(json, "ui", "");
+        tickInterval = Math.max(GsonHelper.getAsInt(json, "tickInterval", 1), 0);
 
         if (json.has("traits")) {
             traits = json.get("traits").getAsJsonObject();
@@ -263,6 +266,9 @@ public class ComponentDefinition {
         if (uiLocation != null && !uiLocation.isEmpty()) {
             json.addProperty("ui", uiLocation);
         }
+        if (tickInterval != 1) {
+            json.addProperty("tickInterval", tickInterval);
+        }
         json.add("traits", traits);
         json.add("properties", Multiblocked.GSON.toJsonTree(properties));
         JsonObject statusJson = new JsonObject();
@@ -1,8 +1,10 @@
 package com.lowdragmc.multiblocked.api.definition;
 
 import com.google.common.base.Suppliers;
+import com.google.common.collect.Iterators;
 import com.google.gson.JsonObject;
 import com.lowdragmc.lowdraglib.utils.JsonUtil;
+import com.lowdragmc.multiblocked.MbdConfig;
 import com.lowdragmc.multiblocked.Multiblocked;
 import com.lowdragmc.multiblocked.api.pattern.BlockPattern;
 import com.lowdragmc.multiblocked.api.pattern.JsonBlockPattern;
@@ -15,10 +17,13 @@ import net.minecraft.util.GsonHelper;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.resources.ResourceLocation;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Stack;
+import java.util.NoSuchElementException;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -34,6 +39,10 @@ public class ControllerDefinition extends ComponentDefinition {
     public CatalystState consumeCatalyst;
     public boolean noNeedController;
     public List<MultiblockShapeInfo> designs; // TODO
+    // designs generated from the base pattern, regenerated if the pattern changes
+    private volatile GeneratedDesigns generatedDesigns;
+
+    private record GeneratedDesigns(BlockPattern pattern, List<MultiblockShapeInfo> designs) { }
 
     public ControllerDefinition(ResourceLocation location) {
         this(location, ControllerTileEntity.class);
@@ -48,32 +57,111 @@ public class ControllerDefinition extends ComponentDefinition {
     public List<MultiblockShapeInfo> getDesigns() {
         if (designs != null) return designs;
         // auto gen
-        if (getBasePattern() != null) {
-            return autoGenDFS(getBasePattern(), new ArrayList<>(), new Stack<>());
+        BlockPattern pattern = getBasePattern();
+        if (pattern == null) return Collections.emptyList();
+        GeneratedDesigns generated = generatedDesigns;
+        if (generated == null || generated.pattern != pattern) {
+            List<MultiblockShapeInfo> shapeInfos = new ArrayList<>();
+            iterateDesigns(pattern).forEachRemaining(shapeInfos::add);
+            generatedDesigns = generated = new GeneratedDesigns(pattern, Collections.unmodifiableList(shapeInfos));
+        }
+        return generated.designs;
+    }
+
+    /**
+     * the first design, without generating the others.
+     */
+    @Nullable
+    public MultiblockShapeInfo getFirstDesign() {
+        if (designs != null) return designs.isEmpty() ? null : designs.get(0);
+        BlockPattern pattern = getBasePattern();
+        if (pattern == null) return null;
+        GeneratedDesigns generated = generatedDesigns;
+        if (generated != null && generated.pattern == pattern) {
+            return generated.designs.isEmpty() ? null : generated.designs.get(0);
         }
-        return Collections.emptyList();
+        Iterator<MultiblockShapeInfo> iterator = iterateDesigns(pattern);
+        return iterator.hasNext() ? iterator.next() : null;
     }
 
     public void setDesigns(List<MultiblockShapeInfo> shapeInfos) {
         this.designs = shapeInfos;
     }
 
-    private List<MultiblockShapeInfo> autoGenDFS(BlockPattern structurePattern, List<MultiblockShapeInfo> pages, Stack<Integer> repetitionStack) {
-        int[][] aisleRepetitions = structurePattern.aisleRepetitions;
-        if (repetitionStack.size() == aisleRepetitions.length) {
-            int[] repetition = new int[repetitionStack.size()];
-            for (int i = 0; i < repetitionStack.size(); i++) {
-                repetition[i] = repetitionStack.get(i);
-            }
-            pages.add(new MultiblockShapeInfo(structurePattern.getPreview(repetition)));
-        } else {
-            for (int i = aisleRepetitions[repetitionStack.size()][0]; i <= aisleRepetitions[repetitionStack.size()][1]; i++) {
-                repetitionStack.push(i);
-                autoGenDFS(structurePattern, pages, repetitionStack);
-                repetitionStack.pop();
+    /**
+     * previews of the pattern are generated while iterating, see {@link #getDesignRepetitions(int[][], int)}.
+     */
+    public static Iterator<MultiblockShapeInfo> iterateDesigns(BlockPattern pattern) {
+        return Iterators.transform(getDesignRepetitions(pattern.aisleRepetitions, MbdConfig.maxAutoDesigns.get()),
+                repetition -> new MultiblockShapeInfo(pattern.getPreview(repetition)));
+    }
+
+    /**
+     * repetitions of the aisles to preview. All combinations in order if there are no more than the limit,
+     * otherwise the minimum, the maximum, the middle of all ranges and each aisle at its maximum alone, up to the limit.
+     */
+    public static Iterator<int[]> getDesignRepetitions(int[][] ranges, int limit) {
+        long total = 1;
+        for (int[] range : ranges) {
+            int size = range[1] - range[0] + 1;
+            if (size <= 0) return Collections.emptyIterator();
+            if (total <= limit) {
+                total *= size;
             }
         }
-        return pages;
+        int[] min = new int[ranges.length];
+        int[] max = new int[ranges.length];
+        int[] middle = new int[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            min[i] = ranges[i][0];
+            max[i] = ranges[i][1];
+            middle[i] = (ranges[i][0] + ranges[i][1]) / 2;
+        }
+        if (total <= limit) {
+            return new Iterator<>() {
+                private int[] next = min;
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public int[] next() {
+                    if (next == null) throw new NoSuchElementException();
+                    int[] current = next;
+                    // the last aisle changes fastest
+                    next = current.clone();
+                    int i = ranges.length - 1;
+                    while (i >= 0 && next[i] == ranges[i][1]) {
+                        next[i] = ranges[i][0];
+                        i--;
+                    }
+                    if (i < 0) {
+                        next = null;
+                    } else {
+                        next[i]++;
+                    }
+                    return current;
+                }
+            };
+        }
+        List<int[]> samples = new ArrayList<>();
+        addSample(samples, min, limit);
+        addSample(samples, max, limit);
+        addSample(samples, middle, limit);
+        for (int i = 0; i < ranges.length; i++) {
+            int[] repetition = min.clone();
+            repetition[i] = max[i];
+            addSample(samples, repetition, limit);
+        }
+        return samples.iterator();
+    }
+
+    private static void addSample(List<int[]> samples, int[] repetition, int limit) {
+        if (samples.size() < limit && samples.stream().noneMatch(sample -> Arrays.equals(sample, repetition))) {
+            samples.add(repetition);
+        }
     }
 
     public String getDescription() {
@@ -99,10 +187,12 @@ public class ControllerDefinition extends ComponentDefinition {
 
     public void setBasePattern(BlockPattern basePattern) {
         this.basePattern = () -> basePattern;
+        this.generatedDesigns = null;
     }
 
     public void setBasePattern(Supplier<BlockPattern> basePattern) {
         this.basePattern = basePattern;
+        this.generatedDesigns = null;
     }
 
     public void setRecipeMap(RecipeMap recipeMap) {
@@ -128,6 +218,7 @@ public class ControllerDefinition extends ComponentDefinition {
 
         if (json.has("basePattern")) {
             basePattern = Suppliers.memoize(()-> Multiblocked.GSON.fromJson(json.get("basePattern"), JsonBlockPattern.class).build());
+            generatedDesigns = null;
         }
         if (json.has("recipeMap")) {
             recipeMap = Suppliers.memoize(()-> RecipeMap.RECIPE_MAP_REGISTRY.getOrDefault(json.get("recipeMap").getAsString(), RecipeMap.EMPTY));
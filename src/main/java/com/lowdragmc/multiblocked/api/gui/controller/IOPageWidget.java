@@ -80,7 +80,7 @@ public class IOPageWidget extends PageWidget {
         if (controller.getMultiblockState().cache == null) {
             controller.checkPattern();
         }
-        capabilityMap = controller.getMultiblockState().getMatchContext().get("capabilities");
+        capabilityMap = controller.getMultiblockState().getMatchContext().getCapabilities();
         capabilityMap = capabilityMap == null ? new HashMap<>() : capabilityMap;
         if (controller.isRemote()) {
             capabilitySettings = new HashMap<>();
@@ -95,13 +95,14 @@ public class IOPageWidget extends PageWidget {
         addWidget(lines[1][2] = new ImageWidget(138, 202, 4, 35));
 
         SceneWidget sceneWidget;
+        Collection<BlockPos> cache = controller.getMultiblockState().getCache();
         addWidget(sceneWidget = new SceneWidget(6, 6, 164, 132, isRemote() ? getWorld() : null)
                 .useCacheBuffer()
-                .setRenderedCore(controller.getMultiblockState().getCache(), null)
+                .setRenderedCore(cache, null)
                 .setOnSelected(this::onPosSelected)
                 .setRenderFacing(false));
         if (isRemote()) {
-            sceneWidget.getRenderer().setBlocked(controller.getMultiblockState().getCache().stream().filter(pos -> MultiblockWorldSavedData.modelDisabled.contains(pos)).collect(Collectors.toSet()));
+            sceneWidget.getRenderer().setBlocked(cache.stream().filter(pos -> MultiblockWorldSavedData.modelDisabled.containsKey(pos.asLong())).collect(Collectors.toSet()));
         }
         addWidget(new ButtonWidget(4, 156, 5, 17, LEFT_BUTTON, this::onLeftClick).setHoverTexture(LEFT_BUTTON_HOVER));
         addWidget(new ButtonWidget(167, 156, 5, 17, RIGHT_BUTTON, this::onRightClick).setHoverTexture(RIGHT_BUTTON_HOVER));
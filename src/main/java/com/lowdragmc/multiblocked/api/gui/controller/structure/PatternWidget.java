@@ -1,5 +1,6 @@
 package com.lowdragmc.multiblocked.api.gui.controller.structure;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lowdragmc.lowdraglib.gui.texture.*;
 import com.lowdragmc.lowdraglib.gui.util.ClickData;
 import com.lowdragmc.lowdraglib.gui.widget.*;
@@ -42,7 +43,11 @@ import net.minecraftforge.items.IItemHandler;
 import net.minecraftforge.items.ItemStackHandler;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -50,9 +55,32 @@ import java.util.stream.Stream;
 public class PatternWidget extends WidgetGroup {
     private static final TrackedDummyWorld world = new TrackedDummyWorld();
     private static BlockPos LAST_POS = new BlockPos(50, 50, 50);
+    /**
+     * range of the world region of a page.
+     */
+    public static final int REGION_RANGE = 500;
+    // regions of evicted widgets, their blocks are removed already
+    private static final Deque<BlockPos> FREE_REGIONS = new ArrayDeque<>();
 
     private static final ResourceTexture PAGE = new ResourceTexture("multiblocked:textures/gui/structure_page.png");
-    private static final Map<ControllerDefinition, PatternWidget> CACHE = new HashMap<>();
+    /**
+     * count of cached widgets (with their scene buffers), the least recently used one is dropped and its blocks are removed from the world.
+     */
+    public static final int CACHE_SIZE = 32;
+    private static final Map<ControllerDefinition, PatternWidget> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ControllerDefinition, PatternWidget> eldest) {
+            if (size() > CACHE_SIZE) {
+                eldest.getValue().releaseRegions();
+                return true;
+            }
+            return false;
+        }
+    };
+    private static final ExecutorService DESIGN_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("Multiblocked Pattern Preview")
+            .setDaemon(true)
+            .build());
     private static final IGuiTexture BACKGROUND = PAGE.getSubTexture(0, 0, 176 / 256.0, 221 / 256.0);
     private static final IGuiTexture LEFT_BUTTON = PAGE.getSubTexture(238 / 256.0, 54 / 256.0, 18 / 256.0, 18 / 256.0);
     private static final IGuiTexture LEFT_BUTTON_HOVER = PAGE.getSubTexture(238 / 256.0, 36 / 256.0, 18 / 256.0, 18 / 256.0);
@@ -66,7 +94,14 @@ public class PatternWidget extends WidgetGroup {
     private final ButtonWidget rightButton;
     private final SwitchWidget switchWidget;
     public final ControllerDefinition controllerDefinition;
-    public final MBPattern[] patterns;
+    // designs are generated off-thread, a page is set up in the dummy world when it is shown first
+    private final CompletableFuture<List<MultiblockShapeInfo>> designs;
+    private MultiblockShapeInfo[] pendingDesigns;
+    private MBPattern[] patterns = new MBPattern[0];
+    // world regions and block positions of the pages set up
+    private final List<BlockPos> regions = new ArrayList<>();
+    private final List<BlockPos> placedBlocks = new ArrayList<>();
+    private final ImageWidget loadingWidget;
     private final List<SimplePredicate> predicates;
     private int index;
     public int layer;
@@ -99,13 +134,8 @@ public class PatternWidget extends WidgetGroup {
         }
 
         this.controllerDefinition = controllerDefinition;
-
-        HashSet<ItemStackKey> drops = new HashSet<>();
-        drops.add(new ItemStackKey(this.controllerDefinition.getStackForm()));
-        this.patterns = controllerDefinition.getDesigns().stream()
-                .map(it -> initializePattern(it, drops))
-                .filter(Objects::nonNull)
-                .toArray(MBPattern[]::new);
+        this.designs = CompletableFuture.supplyAsync(controllerDefinition::getDesigns, DESIGN_EXECUTOR);
+        addWidget(loadingWidget = new ImageWidget(6, 95, 164, 10, new TextTexture("multiblocked.structure_page.loading", -1).setDropShadow(true)));
 
         addWidget(switchWidget = (SwitchWidget) new SwitchWidget(151, 33, 16, 16, this::onFormedSwitch)
                 .setTexture(FORMED_BUTTON, FORMED_BUTTON_PRESSED)
@@ -114,6 +144,8 @@ public class PatternWidget extends WidgetGroup {
         addWidget(leftButton = new ButtonWidget(9, 151, 18, 18, LEFT_BUTTON, (x) -> reset(index - 1)).setHoverTexture(LEFT_BUTTON_HOVER));
 
         addWidget(rightButton = new ButtonWidget(150, 53, 18, 18, RIGHT_BUTTON, (x) -> reset(index + 1)).setHoverTexture(RIGHT_BUTTON_HOVER));
+        leftButton.setVisible(false);
+        rightButton.setVisible(false);
 
         addWidget(new ButtonWidget(10, 80, 10, 10, new ResourceTexture("multiblocked:textures/gui/up.png"), cd -> updateLayer(1)).setHoverTooltips("multiblocked.gui.dialogs.pattern.next_aisle"));
         addWidget(new ImageWidget(10, 90, 10, 10, textTexture = new TextTexture("all")));
@@ -129,8 +161,37 @@ public class PatternWidget extends WidgetGroup {
         }
     }
 
+    /**
+     * show the first page once the designs are generated.
+     */
+    private void checkDesigns() {
+        if (pendingDesigns != null || !designs.isDone()) return;
+        List<MultiblockShapeInfo> shapeInfos;
+        try {
+            shapeInfos = designs.join();
+        } catch (Exception e) {
+            Multiblocked.LOGGER.error("Failed to generate designs of {}", controllerDefinition.location, e);
+            shapeInfos = Collections.emptyList();
+        }
+        pendingDesigns = shapeInfos.toArray(MultiblockShapeInfo[]::new);
+        patterns = new MBPattern[pendingDesigns.length];
+        loadingWidget.setVisible(false);
+        reset(0);
+    }
+
+    @Nullable
+    private MBPattern getPattern(int index) {
+        if (pendingDesigns[index] != null) {
+            patterns[index] = initializePattern(pendingDesigns[index]);
+            pendingDesigns[index] = null;
+        }
+        return patterns[index];
+    }
+
     private void updateLayer(int add) {
-        MBPattern pattern = patterns[index];
+        if (index >= patterns.length) return;
+        MBPattern pattern = getPattern(index);
+        if (pattern == null) return;
         if (layer + add >= -1 && layer + add <= pattern.maxY - pattern.minY) {
             if (pattern.controllerBase.isFormed()) {
                 onFormedSwitch(null, false);
@@ -168,10 +229,11 @@ public class PatternWidget extends WidgetGroup {
 
     public void reset(int index) {
         if (index >= patterns.length || index < 0) return;
+        MBPattern pattern = getPattern(index);
+        if (pattern == null) return;
         this.index = index;
         this.layer = -1;
         textTexture.updateText("all");
-        MBPattern pattern = patterns[index];
         setupScene(pattern);
         if (slotWidgets != null) {
             for (SlotWidget slotWidget : slotWidgets) {
@@ -191,7 +253,9 @@ public class PatternWidget extends WidgetGroup {
     }
 
     private void onFormedSwitch(ClickData clickData, Boolean isPressed) {
-        MBPattern pattern = patterns[index];
+        if (index >= patterns.length) return;
+        MBPattern pattern = getPattern(index);
+        if (pattern == null) return;
         IControllerComponent controllerBase = pattern.controllerBase;
         if (isPressed) {
             this.layer = -1;
@@ -205,7 +269,7 @@ public class PatternWidget extends WidgetGroup {
     }
 
     private void onPosSelected(BlockPos pos, Direction facing) {
-        if (index >= patterns.length || index < 0) return;
+        if (index >= patterns.length || index < 0 || patterns[index] == null) return;
         TraceabilityPredicate predicate = patterns[index].predicateMap.get(pos);
         if (predicate != null) {
             predicates.clear();
@@ -253,6 +317,9 @@ public class PatternWidget extends WidgetGroup {
     }
 
     public static BlockPos locateNextRegion(int range) {
+        if (range <= REGION_RANGE && !FREE_REGIONS.isEmpty()) {
+            return FREE_REGIONS.pop();
+        }
         BlockPos pos = LAST_POS;
         LAST_POS = LAST_POS.offset(range, 0, range);
         return pos;
@@ -261,10 +328,12 @@ public class PatternWidget extends WidgetGroup {
     @Override
     public void updateScreen() {
         super.updateScreen();
+        checkDesigns();
     }
 
     @Override
     public void drawInBackground(@Nonnull PoseStack matrixStack, int mouseX, int mouseY, float partialTicks) {
+        checkDesigns();
         int x = getPosition().x;
         int y = getPosition().y;
         int width = getSize().width;
@@ -274,10 +343,11 @@ public class PatternWidget extends WidgetGroup {
         super.drawInBackground(matrixStack, mouseX, mouseY, partialTicks);
     }
 
-    private MBPattern initializePattern(MultiblockShapeInfo shapeInfo, HashSet<ItemStackKey> blockDrops) {
+    private MBPattern initializePattern(MultiblockShapeInfo shapeInfo) {
         Map<BlockPos, BlockInfo> blockMap = new HashMap<>();
         IControllerComponent controllerBase = null;
-        BlockPos multiPos = locateNextRegion(500);
+        BlockPos multiPos = locateNextRegion(REGION_RANGE);
+        regions.add(multiPos);
 
         BlockInfo[][][] blocks = shapeInfo.getBlocks();
         for (int x = 0; x < blocks.length; x++) {
@@ -297,17 +367,17 @@ public class PatternWidget extends WidgetGroup {
         }
 
         world.addBlocks(blockMap);
+        placedBlocks.addAll(blockMap.keySet());
         if (controllerBase != null) {
             world.setBlockEntity(controllerBase.self());
         }
 
         Map<ItemStackKey, PartInfo> parts = gatherBlockDrops(blockMap);
-        blockDrops.addAll(parts.keySet());
 
         Map<BlockPos, TraceabilityPredicate> predicateMap = new HashMap<>();
         if (controllerBase != null) {
             loadControllerFormed(predicateMap.keySet(), controllerBase);
-            predicateMap = controllerBase.getMultiblockState().getMatchContext().get("predicates");
+            predicateMap = controllerBase.getMultiblockState().getMatchContext().getPredicates();
         }
         return controllerBase == null ? null : new MBPattern(blockMap, parts.values().stream().sorted((one, two) -> {
             if (one.isController) return -1;
@@ -319,6 +389,22 @@ public class PatternWidget extends WidgetGroup {
         }).map(PartInfo::getItemStack).toList(), predicateMap, controllerBase);
     }
 
+    /**
+     * remove the blocks of all pages from the shared world and free their regions, the widget shows nothing afterwards.
+     */
+    private void releaseRegions() {
+        designs.cancel(false);
+        for (BlockPos pos : placedBlocks) {
+            world.removeBlockEntity(pos);
+            world.removeBlock(pos, false);
+        }
+        placedBlocks.clear();
+        FREE_REGIONS.addAll(regions);
+        regions.clear();
+        pendingDesigns = new MultiblockShapeInfo[0];
+        patterns = new MBPattern[0];
+    }
+
     private void loadControllerFormed(Collection<BlockPos> poses, IControllerComponent controllerBase) {
         controllerBase.setMultiblockState(new MultiblockState(world, controllerBase.self().getBlockPos()));
         BlockPattern pattern = controllerBase.getPattern();
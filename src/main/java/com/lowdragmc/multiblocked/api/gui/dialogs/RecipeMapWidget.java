@@ -101,6 +101,7 @@ public class RecipeMapWidget extends DialogWidget {
             recipeMap.fuelRecipes.clear();
         }
         recipeMap.recipes.clear();
+        recipeMap.invalidateIndex();
         recipeMap.inputCapabilities.clear();
         recipeMap.outputCapabilities.clear();
         for (RecipeItem recipeItem : recipes) {
@@ -5,11 +5,10 @@ import com.lowdragmc.multiblocked.api.recipe.DynamicRecipeHandler;
 import com.lowdragmc.multiblocked.api.recipe.Recipe;
 import com.lowdragmc.multiblocked.api.recipe.RecipeLogic;
 import dev.latvian.mods.kubejs.event.EventJS;
-import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 
+import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class SearchRecipeEvent extends EventJS {
     public static final String ID = "mbd.search_recipe";
@@ -30,12 +29,7 @@ public class SearchRecipeEvent extends EventJS {
     }
 
     public Map<BlockState,Integer> getComponentData() {
-        Level level = recipeLogic.controller.self().getLevel();
-        return recipeLogic.controller.getMultiblockState()
-                .getCache()
-                .stream()
-                .map(pos -> level.getBlockState(pos))
-                .collect(Collectors.toMap(state -> state, state -> 1, Integer::sum));
+        return new HashMap<>(recipeLogic.controller.getMultiblockState().getCensus());
     }
 
     public RecipeLogic getRecipeLogic() {
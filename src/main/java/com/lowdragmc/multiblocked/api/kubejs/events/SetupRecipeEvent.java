@@ -5,11 +5,10 @@ import com.lowdragmc.multiblocked.api.recipe.DynamicRecipeHandler;
 import com.lowdragmc.multiblocked.api.recipe.Recipe;
 import com.lowdragmc.multiblocked.api.recipe.RecipeLogic;
 import dev.latvian.mods.kubejs.event.EventJS;
-import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 
+import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class SetupRecipeEvent extends EventJS {
     public static final String ID = "mbd.setup_recipe";
@@ -38,12 +37,7 @@ public class SetupRecipeEvent extends EventJS {
     }
 
     public Map<BlockState, Integer> getComponentData() {
-        Level level = recipeLogic.controller.self().getLevel();
-        return recipeLogic.controller.getMultiblockState()
-                .getCache()
-                .stream()
-                .map(pos -> level.getBlockState(pos))
-                .collect(Collectors.toMap(state -> state, state -> 1, Integer::sum));
+        return new HashMap<>(recipeLogic.controller.getMultiblockState().getCensus());
     }
 
     public void setRecipe(Recipe recipe) {
@@ -1,6 +1,7 @@
 package com.lowdragmc.multiblocked.api.pattern;
 
 import com.lowdragmc.lowdraglib.utils.BlockInfo;
+import com.lowdragmc.multiblocked.MbdConfig;
 import com.lowdragmc.multiblocked.api.block.BlockComponent;
 import com.lowdragmc.multiblocked.api.block.CustomProperties;
 import com.lowdragmc.multiblocked.api.capability.IO;
@@ -9,23 +10,32 @@ import com.lowdragmc.multiblocked.api.definition.ControllerDefinition;
 import com.lowdragmc.multiblocked.api.pattern.error.PatternError;
 import com.lowdragmc.multiblocked.api.pattern.error.PatternStringError;
 import com.lowdragmc.multiblocked.api.pattern.error.SinglePredicateError;
+import com.lowdragmc.multiblocked.api.pattern.predicates.PredicateAnyCapability;
+import com.lowdragmc.multiblocked.api.pattern.predicates.PredicateBlocks;
+import com.lowdragmc.multiblocked.api.pattern.predicates.PredicateComponent;
+import com.lowdragmc.multiblocked.api.pattern.predicates.PredicateFluids;
+import com.lowdragmc.multiblocked.api.pattern.predicates.PredicateStates;
 import com.lowdragmc.multiblocked.api.pattern.predicates.SimplePredicate;
 import com.lowdragmc.multiblocked.api.pattern.util.PatternMatchContext;
 import com.lowdragmc.multiblocked.api.pattern.util.RelativeDirection;
+import com.lowdragmc.multiblocked.api.profiler.MbdProfiler;
 import com.lowdragmc.multiblocked.api.tile.IComponent;
 import com.lowdragmc.multiblocked.api.tile.IControllerComponent;
 import com.lowdragmc.multiblocked.api.tile.part.IPartComponent;
 import com.lowdragmc.multiblocked.client.renderer.impl.CycleBlockStateRenderer;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
+import com.google.common.collect.Iterables;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.InteractionHand;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.BlockItem;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.context.BlockPlaceContext;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
@@ -36,14 +46,17 @@ import org.apache.commons.lang3.ArrayUtils;
 
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
-import java.util.function.Supplier;
 
 public class BlockPattern {
 
     static Direction[] FACINGS = {Direction.SOUTH, Direction.NORTH, Direction.WEST, Direction.EAST, Direction.UP, Direction.DOWN};
     static Direction[] FACINGS_H = {Direction.SOUTH, Direction.NORTH, Direction.WEST, Direction.EAST};
+    static Direction[] FACINGS_NONE = {Direction.SOUTH, Direction.NORTH, Direction.EAST, Direction.WEST};
     public final int[][] aisleRepetitions;
     public final RelativeDirection[] structureDir;
     protected final TraceabilityPredicate[][][] blockMatches; //[z][y][x]
@@ -51,6 +64,16 @@ public class BlockPattern {
     protected final int thumbLength; //y size
     protected final int palmLength; //x size
     protected final int[] centerOffset; // x, y, z, minZ, maxZ
+    // compiled per facing ordinal, offsets are linear in (x, y, z) so a slice is precomputed and the aisle is a unit step.
+    private final int[][] sliceOffsets; //[facing][(b * palmLength + a) * 3 + axis]
+    private final int[][] aisleSteps; //[facing][axis]
+    private final TraceabilityPredicate[][] slicePredicates; //[z][b * palmLength + a]
+    // cells which only depend on the block state, most selective first. only for fixed layouts, see quickReject.
+    private final int[][] probeOffsets; //[facing][i * 3 + axis]
+    private final TraceabilityPredicate[] probePredicates;
+    // aisle and z of every slice of fixed layout patterns with thread-safe predicates only, see checkPatternParallel
+    private final int[] parallelAisles;
+    private final int[] parallelZs;
 
     public BlockPattern(TraceabilityPredicate[][][] predicatesIn, RelativeDirection[] structureDir, int[][] aisleRepetitions, int[] centerOffset) {
         this.blockMatches = predicatesIn;
@@ -72,6 +95,168 @@ public class BlockPattern {
         }
 
         this.centerOffset = centerOffset;
+
+        Direction[] directions = Direction.values();
+        this.sliceOffsets = new int[directions.length][];
+        this.aisleSteps = new int[directions.length][];
+        for (Direction facing : directions) {
+            int[] offsets = new int[thumbLength * palmLength * 3];
+            for (int b = 0, y = -centerOffset[1], i = 0; b < thumbLength; b++, y++) {
+                for (int a = 0, x = -centerOffset[0]; a < palmLength; a++, x++) {
+                    BlockPos offset = setActualRelativeOffset(x, y, 0, facing);
+                    offsets[i++] = offset.getX();
+                    offsets[i++] = offset.getY();
+                    offsets[i++] = offset.getZ();
+                }
+            }
+            BlockPos step = setActualRelativeOffset(0, 0, 1, facing);
+            this.sliceOffsets[facing.ordinal()] = offsets;
+            this.aisleSteps[facing.ordinal()] = new int[]{step.getX(), step.getY(), step.getZ()};
+        }
+        this.slicePredicates = new TraceabilityPredicate[fingerLength][thumbLength * palmLength];
+        for (int c = 0; c < fingerLength; c++) {
+            for (int b = 0; b < thumbLength; b++) {
+                System.arraycopy(predicatesIn[c][b], 0, slicePredicates[c], b * palmLength, palmLength);
+            }
+        }
+
+        boolean fixedLayout = Arrays.stream(aisleRepetitions).allMatch(repetition -> repetition[0] == repetition[1]);
+        if (fixedLayout && Arrays.stream(predicatesIn).flatMap(Arrays::stream).flatMap(Arrays::stream).allMatch(BlockPattern::isThreadSafe)) {
+            int slices = Arrays.stream(aisleRepetitions).mapToInt(repetition -> repetition[0]).sum();
+            this.parallelAisles = new int[slices];
+            this.parallelZs = new int[slices];
+            for (int c = 0, z = -centerOffset[4], i = 0; c < fingerLength; c++) {
+                for (int r = 0; r < aisleRepetitions[c][0]; r++, z++, i++) {
+                    parallelAisles[i] = c;
+                    parallelZs[i] = z;
+                }
+            }
+        } else {
+            this.parallelAisles = null;
+            this.parallelZs = null;
+        }
+
+        List<int[]> probes = new ArrayList<>(); // x, y, z, selectivity
+        if (fixedLayout) {
+            for (int c = 0, z = -centerOffset[4]; c < fingerLength; c++) {
+                for (int r = 0; r < aisleRepetitions[c][0]; r++, z++) {
+                    for (int b = 0, y = -centerOffset[1]; b < thumbLength; b++, y++) {
+                        for (int a = 0, x = -centerOffset[0]; a < palmLength; a++, x++) {
+                            int selectivity = getSelectivity(predicatesIn[c][b][a]);
+                            if (selectivity > 0) {
+                                probes.add(new int[]{x, y, z, selectivity, c, b, a});
+                            }
+                        }
+                    }
+                }
+            }
+            probes.sort(Comparator.comparingInt(probe -> probe[3]));
+        }
+        this.probePredicates = probes.stream().map(probe -> predicatesIn[probe[4]][probe[5]][probe[6]]).toArray(TraceabilityPredicate[]::new);
+        this.probeOffsets = new int[directions.length][];
+        for (Direction facing : directions) {
+            int[] offsets = new int[probes.size() * 3];
+            for (int i = 0, j = 0; i < probes.size(); i++) {
+                int[] probe = probes.get(i);
+                BlockPos offset = setActualRelativeOffset(probe[0], probe[1], probe[2], facing);
+                offsets[j++] = offset.getX();
+                offsets[j++] = offset.getY();
+                offsets[j++] = offset.getZ();
+            }
+            this.probeOffsets[facing.ordinal()] = offsets;
+        }
+    }
+
+    /**
+     * number of block states accepted by the predicate, air and any are last.
+     *
+     * @return 0 - the predicate doesn't only depend on the block state.
+     */
+    private static int getSelectivity(TraceabilityPredicate predicate) {
+        if (predicate.isAny() || predicate.common.isEmpty() && predicate.limited.isEmpty()) return 0;
+        int selectivity = 0;
+        for (SimplePredicate simple : Iterables.concat(predicate.common, predicate.limited)) {
+            if (simple == SimplePredicate.AIR) {
+                selectivity = Integer.MAX_VALUE;
+            } else if (simple instanceof PredicateStates states) {
+                selectivity = saturatedAdd(selectivity, states.states.length);
+            } else if (simple instanceof PredicateBlocks blocks) {
+                for (Block block : blocks.blocks) {
+                    selectivity = saturatedAdd(selectivity, block.getStateDefinition().getPossibleStates().size());
+                }
+            } else {
+                return 0;
+            }
+        }
+        return selectivity;
+    }
+
+    /**
+     * built-in predicates only, custom predicates may not be safe to be tested by several threads.
+     */
+    private static boolean isThreadSafe(TraceabilityPredicate predicate) {
+        for (SimplePredicate simple : Iterables.concat(predicate.common, predicate.limited)) {
+            if (simple != SimplePredicate.ANY && simple != SimplePredicate.AIR && !(simple instanceof PredicateStates
+                    || simple instanceof PredicateBlocks || simple instanceof PredicateFluids
+                    || simple instanceof PredicateComponent || simple instanceof PredicateAnyCapability)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        long sum = (long) a + b;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    private static Direction[] getFacings(IControllerComponent controller) {
+        return controller.getDefinition().properties.rotationState != CustomProperties.RotationState.NONE ? new Direction[]{controller.getFrontFacing()} : FACINGS_NONE;
+    }
+
+    /**
+     * Cheap rejection of unformed structures before a full check.
+     * Only the cells of a fixed layout pattern that depend on the block state alone are probed, most selective first,
+     * and the last failing cell of each facing is probed before all others. So an unchanged half-built structure is rejected by a single block read per facing.
+     * <br>
+     * false doesn't mean the pattern matches, a full check is still required.
+     *
+     * @param memo last failing probe per facing ordinal, updated by this call.
+     * @return true - the pattern can't be matched in any facing.
+     */
+    public boolean quickReject(MultiblockState worldState, int[] memo) {
+        if (probePredicates.length == 0) return false;
+        IControllerComponent controller = worldState.getController();
+        if (controller == null) return true;
+        BlockPos centerPos = controller.self().getBlockPos();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (Direction facing : getFacings(controller)) {
+            int[] offsets = probeOffsets[facing.ordinal()];
+            int last = memo[facing.ordinal()] < probePredicates.length ? memo[facing.ordinal()] : 0;
+            int failed = -1;
+            for (int k = -1; k < probePredicates.length && failed < 0; k++) {
+                if (k == last) continue;
+                int i = k < 0 ? last : k;
+                TraceabilityPredicate predicate = probePredicates[i];
+                pos.set(centerPos.getX() + offsets[i * 3], centerPos.getY() + offsets[i * 3 + 1], centerPos.getZ() + offsets[i * 3 + 2]);
+                if (!worldState.update(pos, predicate) || !testState(worldState, predicate)) {
+                    failed = i;
+                }
+            }
+            if (failed < 0) return false;
+            memo[facing.ordinal()] = failed;
+        }
+        return true;
+    }
+
+    /**
+     * test the block state part of all predicates, without counting or touching the match context.
+     */
+    private static boolean testState(MultiblockState worldState, TraceabilityPredicate predicate) {
+        for (SimplePredicate simple : Iterables.concat(predicate.common, predicate.limited)) {
+            if (simple.predicate.test(worldState)) return true;
+        }
+        return false;
     }
 
     public boolean checkPatternAt(MultiblockState worldState, boolean savePredicate) {
@@ -81,100 +266,66 @@ public class BlockPattern {
             return false;
         }
         BlockPos centerPos = controller.self().getBlockPos();
-        Direction frontFacing = controller.getFrontFacing();
         Set<MultiblockCapability<?>> inputCapabilities = controller.getDefinition().getRecipeMap().inputCapabilities;
         Set<MultiblockCapability<?>> outputCapabilities = controller.getDefinition().getRecipeMap().outputCapabilities;
-        Direction[] facings = controller.getDefinition().properties.rotationState != CustomProperties.RotationState.NONE ? new Direction[]{frontFacing} : new Direction[]{Direction.SOUTH, Direction.NORTH, Direction.EAST, Direction.WEST};
+        Direction[] facings = getFacings(controller);
+        boolean profiling = MbdProfiler.isEnabled();
+        long start = profiling ? System.nanoTime() : 0;
+        boolean formed = false;
         for (Direction facing : facings) {
             if (checkPatternAt(worldState, centerPos, facing, savePredicate, inputCapabilities, outputCapabilities)) {
-                return true;
+                formed = true;
+                break;
             }
         }
-        return false;
+        if (profiling) {
+            MbdProfiler.onPatternCheck(controller, System.nanoTime() - start);
+        }
+        return formed;
     }
 
     public boolean checkPatternAt(MultiblockState worldState, BlockPos centerPos, Direction facing, boolean savePredicate, Set<MultiblockCapability<?>> inputCapabilities, Set<MultiblockCapability<?>> outputCapabilities) {
+        if (shouldCheckParallel(worldState) && checkPatternParallel(worldState, centerPos, facing, savePredicate, inputCapabilities, outputCapabilities)) {
+            return true;
+        }
         boolean findFirstAisle = false;
         int minZ = -centerOffset[4];
         worldState.clean();
         PatternMatchContext matchContext = worldState.matchContext;
         Map<SimplePredicate, Integer> globalCount = worldState.globalCount;
+        int[] offsets = sliceOffsets[facing.ordinal()];
+        int[] step = aisleSteps[facing.ordinal()];
+        int centerX = centerPos.getX(), centerY = centerPos.getY(), centerZ = centerPos.getZ();
+        // a single mutable pos for the whole scan, copy it before storing it anywhere.
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
         //Checking aisles
         for (int c = 0, z = minZ++, r; c < this.fingerLength; c++) {
             //Checking repeatable slices
             loop:
             for (r = 0; (findFirstAisle ? r < aisleRepetitions[c][1] : z <= -centerOffset[3]); r++) {
+                TraceabilityPredicate[] predicates = slicePredicates[c];
+                int sliceX = centerX + z * step[0], sliceY = centerY + z * step[1], sliceZ = centerZ + z * step[2];
                 //Checking single slice
-                for (int b = 0, y = -centerOffset[1]; b < this.thumbLength; b++, y++) {
-                    for (int a = 0, x = -centerOffset[0]; a < this.palmLength; a++, x++) {
-                        worldState.setError(null);
-                        TraceabilityPredicate predicate = this.blockMatches[c][b][a];
-                        BlockPos pos = setActualRelativeOffset(x, y, z, facing).offset(centerPos.getX(), centerPos.getY(), centerPos.getZ());
-                        if (!worldState.update(pos, predicate)) {
-                            return false;
-                        }
-                        if (!predicate.isAny()) {
-                            worldState.addPosCache(pos);
-                            if (savePredicate) {
-                                worldState.getMatchContext().getOrCreate("predicates", (Supplier<HashMap<BlockPos, TraceabilityPredicate>>) HashMap::new).put(pos, predicate);
-                            }
-                        }
-                        boolean canPartShared = true;
-                        BlockEntity tileEntity = worldState.getTileEntity();
-                        if (tileEntity instanceof IPartComponent) { // add detected parts
-                            if (!predicate.isAny()) {
-                                IPartComponent part = (IPartComponent) tileEntity;
-                                if (part.isFormed() && !part.canShared() && !part.hasController(worldState.controllerPos)) { // check part can be shared
-                                    canPartShared = false;
-                                    worldState.setError(new PatternStringError("multiblocked.pattern.error.share"));
-                                } else {
-                                    worldState.getMatchContext()
-                                            .getOrCreate("parts", LongOpenHashSet::new)
-                                            .add(worldState.getPos().asLong());
-                                }
-                            }
-                        }
-                        if (!predicate.test(worldState) || !canPartShared) { // matching failed
-                            if (findFirstAisle) {
-                                if (r < aisleRepetitions[c][0]) {//retreat to see if the first aisle can start later
-                                    r = c = 0;
-                                    z = minZ++;
-                                    matchContext.reset();
-                                    findFirstAisle = false;
-                                }
-                            } else {
-                                z++;//continue searching for the first aisle
-                            }
-                            continue loop;
-                        }
-                        if (tileEntity != null && !predicate.isAny()) {
-                            Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> capabilities = worldState.getMatchContext().getOrCreate("capabilities", Long2ObjectOpenHashMap::new);
-                            if (!capabilities.containsKey(worldState.getPos().asLong()) && worldState.io != null) {
-                                // if predicate has no specific capability requirements. we will check abilities of every blocks
-                                Set<MultiblockCapability<?>> bothFound = new HashSet<>();
-                                for (MultiblockCapability<?> capability : inputCapabilities) { // IN
-                                    if (worldState.io == IO.BOTH && outputCapabilities.contains(capability) && capability.isBlockHasCapability(IO.BOTH, tileEntity)) {
-                                        bothFound.add(capability);
-                                        capabilities.computeIfAbsent(worldState.getPos().asLong(), l -> new EnumMap<>(IO.class))
-                                                .computeIfAbsent(IO.BOTH, xx -> new HashSet<>())
-                                                .add(capability);
-                                    } else if (worldState.io != IO.OUT && capability.isBlockHasCapability(IO.IN, tileEntity)) {
-                                        capabilities.computeIfAbsent(worldState.getPos().asLong(), l -> new EnumMap<>(IO.class))
-                                                .computeIfAbsent(IO.IN, xx -> new HashSet<>())
-                                                .add(capability);
-                                    }
-                                }
-                                if (worldState.io != IO.IN) {
-                                    for (MultiblockCapability<?> capability : outputCapabilities) { // OUT
-                                        if (!bothFound.contains(capability) && capability.isBlockHasCapability(IO.OUT, tileEntity)) {
-                                            capabilities.computeIfAbsent(worldState.getPos().asLong(), l -> new EnumMap<>(IO.class))
-                                                    .computeIfAbsent(IO.OUT, xx -> new HashSet<>())
-                                                    .add(capability);
-                                        }
-                                    }
-                                }
+                for (int i = 0, j = 0; i < predicates.length; i++, j += 3) {
+                    worldState.setError(null);
+                    TraceabilityPredicate predicate = predicates[i];
+                    pos.set(sliceX + offsets[j], sliceY + offsets[j + 1], sliceZ + offsets[j + 2]);
+                    if (!worldState.update(pos, predicate)) {
+                        return false;
+                    }
+                    if (!matchCell(worldState, pos, predicate, savePredicate, inputCapabilities, outputCapabilities)) { // matching failed
+                        if (findFirstAisle) {
+                            if (r < aisleRepetitions[c][0]) {//retreat to see if the first aisle can start later
+                                r = c = 0;
+                                z = minZ++;
+                                matchContext.reset();
+                                worldState.resetPredicates();
+                                findFirstAisle = false;
                             }
+                        } else {
+                            z++;//continue searching for the first aisle
                         }
+                        continue loop;
                     }
                 }
                 findFirstAisle = true;
@@ -197,10 +348,215 @@ public class BlockPattern {
             }
         }
 
+        worldState.setError(null);
+        worldState.checkedPattern = this;
+        return true;
+    }
+
+    /**
+     * match the cell at the pos the state has been updated to, and record it into the state.
+     *
+     * @return false - matching failed.
+     */
+    private static boolean matchCell(MultiblockState worldState, BlockPos pos, TraceabilityPredicate predicate, boolean savePredicate, Set<MultiblockCapability<?>> inputCapabilities, Set<MultiblockCapability<?>> outputCapabilities) {
+        PatternMatchContext matchContext = worldState.getMatchContext();
+        if (!predicate.isAny()) {
+            worldState.addPosCache(pos);
+            if (savePredicate) {
+                matchContext.getOrCreatePredicates().put(pos.immutable(), predicate);
+            }
+        }
+        boolean canPartShared = true;
+        BlockEntity tileEntity = worldState.getTileEntity();
+        if (tileEntity instanceof IPartComponent) { // add detected parts
+            if (!predicate.isAny()) {
+                IPartComponent part = (IPartComponent) tileEntity;
+                if (part.isFormed() && !part.canShared() && !part.hasController(worldState.controllerPos)) { // check part can be shared
+                    canPartShared = false;
+                    worldState.setError(new PatternStringError("multiblocked.pattern.error.share"));
+                } else {
+                    matchContext.getOrCreateParts().add(pos.asLong());
+                }
+            }
+        }
+        if (!predicate.test(worldState) || !canPartShared) {
+            return false;
+        }
+        if (!predicate.isAny()) {
+            worldState.recordPredicate(pos);
+            if (tileEntity != null) {
+                detectCapabilities(worldState, tileEntity, inputCapabilities, outputCapabilities);
+            }
+        }
+        return true;
+    }
+
+    private boolean shouldCheckParallel(MultiblockState worldState) {
+        if (parallelAisles == null || !(worldState.world instanceof ServerLevel) || MultiblockWorldSavedData.getAsyncParallelism() == 0) return false;
+        int threshold = MbdConfig.parallelPatternThreshold.get();
+        return threshold > 0 && parallelAisles.length > 1 && (long) parallelAisles.length * thumbLength * palmLength >= threshold;
+    }
+
+    /**
+     * Check a fixed layout pattern by slabs of slices in parallel on the async pool, the calling thread checks slabs as well.
+     * Each slab is matched by its own state, the results are merged in order.
+     *
+     * @return false - the pattern doesn't match, or the result can't be merged. The serial check is required then to get the exact error.
+     */
+    private boolean checkPatternParallel(MultiblockState worldState, BlockPos centerPos, Direction facing, boolean savePredicate, Set<MultiblockCapability<?>> inputCapabilities, Set<MultiblockCapability<?>> outputCapabilities) {
+        int slabCount = Math.min(parallelAisles.length, MultiblockWorldSavedData.getAsyncParallelism() + 1);
+        MultiblockState[] slabs = new MultiblockState[slabCount];
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(slabCount);
+        Runnable runner = () -> {
+            for (int slab = next.getAndIncrement(); slab < slabCount; slab = next.getAndIncrement()) {
+                try {
+                    if (failed.get()) continue;
+                    MultiblockState slabState = new MultiblockState(worldState.world, worldState.controllerPos);
+                    slabState.clean();
+                    int from = slab * parallelAisles.length / slabCount, to = (slab + 1) * parallelAisles.length / slabCount;
+                    if (checkSlab(slabState, centerPos, facing, from, to, savePredicate, inputCapabilities, outputCapabilities, failed)) {
+                        slabs[slab] = slabState;
+                    } else {
+                        failed.set(true);
+                    }
+                } catch (Throwable e) {
+                    failed.set(true);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        for (int i = 1; i < slabCount; i++) {
+            if (!MultiblockWorldSavedData.executeAsync(runner)) break;
+        }
+        runner.run();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (failed.get()) return false;
+
+        worldState.clean();
+        for (MultiblockState slab : slabs) {
+            if (!worldState.merge(slab)) return false;
+        }
+        // counts of a prefix never exceed the total, so the serial check wouldn't have hit a max count either.
+        for (Map.Entry<SimplePredicate, Integer> entry : worldState.globalCount.entrySet()) {
+            SimplePredicate predicate = entry.getKey();
+            if (entry.getValue() < predicate.minCount || (predicate.maxCount != -1 && entry.getValue() > predicate.maxCount)) {
+                return false;
+            }
+        }
+        worldState.setError(null);
+        worldState.checkedPattern = this;
+        return true;
+    }
+
+    private boolean checkSlab(MultiblockState slabState, BlockPos centerPos, Direction facing, int from, int to, boolean savePredicate, Set<MultiblockCapability<?>> inputCapabilities, Set<MultiblockCapability<?>> outputCapabilities, AtomicBoolean failed) {
+        int[] offsets = sliceOffsets[facing.ordinal()];
+        int[] step = aisleSteps[facing.ordinal()];
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int k = from; k < to; k++) {
+            if (failed.get()) return false;
+            TraceabilityPredicate[] predicates = slicePredicates[parallelAisles[k]];
+            int z = parallelZs[k];
+            int sliceX = centerPos.getX() + z * step[0], sliceY = centerPos.getY() + z * step[1], sliceZ = centerPos.getZ() + z * step[2];
+            for (int i = 0, j = 0; i < predicates.length; i++, j += 3) {
+                slabState.setError(null);
+                TraceabilityPredicate predicate = predicates[i];
+                pos.set(sliceX + offsets[j], sliceY + offsets[j + 1], sliceZ + offsets[j + 2]);
+                if (!slabState.update(pos, predicate) || !matchCell(slabState, pos, predicate, savePredicate, inputCapabilities, outputCapabilities)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Re-check a single changed position of a structure formed by this pattern.
+     * Only the predicate matched at this position is tested, the match context and global counts are updated incrementally.
+     *
+     * @return false - the structure is invalid, or the position can't be checked alone (e.g. it may change aisle repetitions).
+     * A full check is required then.
+     */
+    public boolean checkPositionAt(MultiblockState worldState, BlockPos pos) {
+        if (worldState.checkedPattern != this) return false;
+        TraceabilityPredicate predicate = worldState.removePredicate(pos);
+        if (predicate == null) return false;
+        IControllerComponent controller = worldState.getController();
+        if (controller == null || !worldState.update(pos, predicate)) return false;
+        long posLong = pos.asLong();
+        PatternMatchContext matchContext = worldState.getMatchContext();
+        LongOpenHashSet parts = matchContext.getParts();
+        if (parts != null) {
+            parts.remove(posLong);
+        }
+        Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> capabilities = matchContext.getCapabilities();
+        if (capabilities != null) {
+            capabilities.remove(posLong);
+        }
+        BlockEntity tileEntity = worldState.getTileEntity();
+        if (tileEntity instanceof IPartComponent part) {
+            if (part.isFormed() && !part.canShared() && !part.hasController(worldState.controllerPos)) {
+                return false;
+            }
+            matchContext.getOrCreateParts().add(posLong);
+        }
+        if (!predicate.test(worldState)) {
+            return false;
+        }
+        worldState.recordPredicate(pos);
+        worldState.updateCensus(posLong, worldState.getBlockState());
+        if (tileEntity != null) {
+            detectCapabilities(worldState, tileEntity, controller.getDefinition().getRecipeMap().inputCapabilities, controller.getDefinition().getRecipeMap().outputCapabilities);
+        }
+        for (Map.Entry<SimplePredicate, Integer> entry : worldState.globalCount.entrySet()) {
+            if (entry.getValue() < entry.getKey().minCount || (entry.getKey().maxCount != -1 && entry.getValue() > entry.getKey().maxCount)) {
+                return false;
+            }
+        }
         worldState.setError(null);
         return true;
     }
 
+    /**
+     * detect capabilities of the matched position if the predicate has no specific capability requirements.
+     */
+    static void detectCapabilities(MultiblockState worldState, BlockEntity tileEntity, Set<MultiblockCapability<?>> inputCapabilities, Set<MultiblockCapability<?>> outputCapabilities) {
+        Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> capabilities = worldState.getMatchContext().getOrCreateCapabilities();
+        long pos = worldState.pos.asLong();
+        if (!capabilities.containsKey(pos) && worldState.io != null) {
+            // if predicate has no specific capability requirements. we will check abilities of every blocks
+            Set<MultiblockCapability<?>> bothFound = new HashSet<>();
+            for (MultiblockCapability<?> capability : inputCapabilities) { // IN
+                if (worldState.io == IO.BOTH && outputCapabilities.contains(capability) && capability.isBlockHasCapability(IO.BOTH, tileEntity)) {
+                    bothFound.add(capability);
+                    capabilities.computeIfAbsent(pos, l -> new EnumMap<>(IO.class))
+                            .computeIfAbsent(IO.BOTH, xx -> new HashSet<>())
+                            .add(capability);
+                } else if (worldState.io != IO.OUT && capability.isBlockHasCapability(IO.IN, tileEntity)) {
+                    capabilities.computeIfAbsent(pos, l -> new EnumMap<>(IO.class))
+                            .computeIfAbsent(IO.IN, xx -> new HashSet<>())
+                            .add(capability);
+                }
+            }
+            if (worldState.io != IO.IN) {
+                for (MultiblockCapability<?> capability : outputCapabilities) { // OUT
+                    if (!bothFound.contains(capability) && capability.isBlockHasCapability(IO.OUT, tileEntity)) {
+                        capabilities.computeIfAbsent(pos, l -> new EnumMap<>(IO.class))
+                                .computeIfAbsent(IO.OUT, xx -> new HashSet<>())
+                                .add(capability);
+                    }
+                }
+            }
+        }
+    }
+
     public void autoBuild(Player player, MultiblockState worldState) {
         Level world = player.level;
         int minZ = -centerOffset[4];
@@ -10,18 +10,31 @@ import com.lowdragmc.multiblocked.api.tile.IControllerComponent;
 import com.lowdragmc.multiblocked.network.MultiblockedNetworking;
 import com.lowdragmc.multiblocked.network.s2c.SPacketRemoveDisabledRendering;
 import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongIterators;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 
 public class MultiblockState {
@@ -43,6 +56,22 @@ public class MultiblockState {
 
     // persist
     public LongOpenHashSet cache;
+    // computed from the cache on demand, see #getBounds and #getChunks
+    private BoundingBox bounds;
+    private long[] chunks;
+
+    // matched predicates for incremental checking, see BlockPattern#checkPositionAt
+    BlockPattern checkedPattern;
+    private final Long2ObjectOpenHashMap<TraceabilityPredicate> predicateCache = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<SimplePredicate[]> countedCache = new Long2ObjectOpenHashMap<>();
+    private final List<SimplePredicate> counted = new ArrayList<>();
+    // positions tested more than once by a scan, e.g. the slice ending a repeated aisle. they are never checked incrementally.
+    private final LongOpenHashSet contested = new LongOpenHashSet();
+
+    // block states of cached positions, see #getCensus
+    private final Long2ObjectOpenHashMap<BlockState> censusStates = new Long2ObjectOpenHashMap<>();
+    private final Object2IntOpenHashMap<BlockState> census = new Object2IntOpenHashMap<>();
+    private boolean censusCompleted;
 
     public MultiblockState(Level world, BlockPos controllerPos) {
         this.world = world;
@@ -54,6 +83,64 @@ public class MultiblockState {
         this.matchContext = new PatternMatchContext();
         this.globalCount = new HashMap<>();
         cache = new LongOpenHashSet();
+        invalidateBounds();
+        resetPredicates();
+        contested.clear();
+        resetCensus();
+    }
+
+    /**
+     * mark as formed with the persisted cache, without a pattern check.
+     */
+    public void restore() {
+        this.matchContext = new PatternMatchContext();
+        this.globalCount = new HashMap<>();
+        resetPredicates();
+        contested.clear();
+        resetCensus();
+        this.error = null;
+    }
+
+    public void resetPredicates() {
+        checkedPattern = null;
+        predicateCache.clear();
+        countedCache.clear();
+    }
+
+    /**
+     * record the predicate matched at the given pos, and the limited predicates counted by it.
+     */
+    public void recordPredicate(BlockPos pos) {
+        if (contested.contains(pos.asLong())) return;
+        predicateCache.put(pos.asLong(), predicate);
+        if (!counted.isEmpty()) {
+            countedCache.put(pos.asLong(), counted.toArray(SimplePredicate[]::new));
+        }
+    }
+
+    /**
+     * remove the recorded predicate of the given pos, and revert its global counts.
+     */
+    @Nullable
+    public TraceabilityPredicate removePredicate(BlockPos pos) {
+        TraceabilityPredicate removed = predicateCache.remove(pos.asLong());
+        SimplePredicate[] limited = countedCache.remove(pos.asLong());
+        if (limited != null) {
+            for (SimplePredicate predicate : limited) {
+                globalCount.computeIfPresent(predicate, (p, count) -> count - 1);
+            }
+        }
+        return removed;
+    }
+
+    public int countGlobal(SimplePredicate predicate, boolean matched) {
+        Integer count = globalCount.get(predicate);
+        count = (count == null ? 0 : count) + (matched ? 1 : 0);
+        globalCount.put(predicate, count);
+        if (matched) {
+            counted.add(predicate);
+        }
+        return count;
     }
 
     public boolean update(BlockPos posIn, TraceabilityPredicate predicate) {
@@ -63,6 +150,7 @@ public class MultiblockState {
         this.tileEntityInitialized = false;
         this.predicate = predicate;
         this.error = null;
+        this.counted.clear();
         if (!world.isLoaded(posIn)) {
             error = UNLOAD_ERROR;
             return false;
@@ -134,17 +222,176 @@ public class MultiblockState {
     }
 
     public void addPosCache(BlockPos pos) {
-        cache.add(pos.asLong());
+        if (!cache.add(pos.asLong())) {
+            contest(pos.asLong());
+        }
+        invalidateBounds();
+    }
+
+    /**
+     * merge the result of another state which checked a disjoint part of the same pattern, see BlockPattern parallel matching.
+     *
+     * @return false - the match context can't be merged.
+     */
+    boolean merge(MultiblockState other) {
+        predicateCache.putAll(other.predicateCache);
+        countedCache.putAll(other.countedCache);
+        for (long pos : other.contested) {
+            contest(pos);
+        }
+        for (long pos : other.cache) {
+            if (!cache.add(pos)) {
+                contest(pos);
+            }
+        }
+        invalidateBounds();
+        other.globalCount.forEach((predicate, count) -> globalCount.merge(predicate, count, Integer::sum));
+        return matchContext.merge(other.matchContext);
+    }
+
+    /**
+     * the position is tested again by another slice or predicate, a change of it may alter how the pattern matches.
+     * its record is dropped, so changes of it are handled by the full check.
+     */
+    private void contest(long pos) {
+        if (contested.add(pos)) {
+            predicateCache.remove(pos);
+            countedCache.remove(pos);
+        }
+    }
+
+    private void resetCensus() {
+        censusStates.clear();
+        census.clear();
+        censusCompleted = false;
+    }
+
+    /**
+     * update the census of a cached position changed in a formed structure, nothing to do if the census isn't built yet.
+     */
+    public void updateCensus(long pos, BlockState blockState) {
+        if (censusCompleted) {
+            putCensus(pos, blockState);
+        }
+    }
+
+    private void putCensus(long pos, BlockState blockState) {
+        BlockState last = censusStates.put(pos, blockState);
+        if (last != blockState) {
+            if (last != null && census.addTo(last, -1) == 1) {
+                census.removeInt(last);
+            }
+            census.addTo(blockState, 1);
+        }
+    }
+
+    /**
+     * Block state histogram of the structure. It is built from the world at the first access (server thread),
+     * and updated by block changes checked incrementally until the next full pattern check.
+     */
+    public Object2IntMap<BlockState> getCensus() {
+        if (!censusCompleted && cache != null && world != null) {
+            resetCensus();
+            BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+            for (long posLong : cache) {
+                putCensus(posLong, world.getBlockState(pos.set(posLong)));
+            }
+            censusCompleted = true;
+        }
+        return Object2IntMaps.unmodifiable(census);
+    }
+
+    public int getBlockCount(BlockState blockState) {
+        return getCensus().getInt(blockState);
     }
 
     public boolean isPosInCache(BlockPos pos) {
         return cache.contains(pos.asLong());
     }
 
+    /**
+     * Cached positions as a new list of {@link BlockPos}, prefer {@link #forEachPacked} or {@link #cacheIterator()}.
+     */
     public Collection<BlockPos> getCache() {
         return cache.stream().map(BlockPos::of).collect(Collectors.toList());
     }
 
+    /**
+     * iterate cached positions in the packed form, see {@link BlockPos#of(long)}.
+     */
+    public void forEachPacked(LongConsumer consumer) {
+        if (cache != null) {
+            cache.forEach(consumer);
+        }
+    }
+
+    public LongIterator cacheIterator() {
+        return cache == null ? LongIterators.EMPTY_ITERATOR : cache.iterator();
+    }
+
+    /**
+     * Call it if the {@link #cache} is modified directly.
+     */
+    public void invalidateBounds() {
+        bounds = null;
+        chunks = null;
+    }
+
+    /**
+     * bounding box of cached positions (inclusive), the controller position if nothing is cached.
+     */
+    public BoundingBox getBounds() {
+        BoundingBox bounds = this.bounds;
+        if (bounds == null) {
+            if (cache == null || cache.isEmpty()) {
+                bounds = new BoundingBox(controllerPos);
+            } else {
+                int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+                for (LongIterator iterator = cache.iterator(); iterator.hasNext(); ) {
+                    long pos = iterator.nextLong();
+                    int x = BlockPos.getX(pos), y = BlockPos.getY(pos), z = BlockPos.getZ(pos);
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    minZ = Math.min(minZ, z);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                    maxZ = Math.max(maxZ, z);
+                }
+                bounds = new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+            }
+            this.bounds = bounds;
+        }
+        return bounds;
+    }
+
+    /**
+     * distinct chunks of cached positions, see {@link net.minecraft.world.level.ChunkPos#asLong(int, int)}.
+     */
+    public long[] getChunks() {
+        long[] chunks = this.chunks;
+        if (chunks == null) {
+            LongOpenHashSet set = new LongOpenHashSet();
+            for (LongIterator iterator = cacheIterator(); iterator.hasNext(); ) {
+                long pos = iterator.nextLong();
+                set.add(ChunkPos.asLong(BlockPos.getX(pos) >> 4, BlockPos.getZ(pos) >> 4));
+            }
+            this.chunks = chunks = set.toLongArray();
+        }
+        return chunks;
+    }
+
+    /**
+     * whether all chunks of the cached positions are loaded, it doesn't load any of them.
+     */
+    public boolean areChunksLoaded() {
+        for (long chunk : getChunks()) {
+            if (!world.hasChunk(ChunkPos.getX(chunk), ChunkPos.getZ(chunk))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void onBlockStateChanged(BlockPos pos) {
         if (pos.equals(controllerPos)) {
             if (this.getMatchContext().containsKey("renderMask")) {
@@ -162,7 +409,7 @@ public class MultiblockState {
         } else if (error != UNLOAD_ERROR) {
             IControllerComponent controller = getController();
             boolean hasRenderMask = getMatchContext().containsKey("renderMask");
-            if (controller != null && !controller.checkPattern()) {
+            if (controller != null && !checkPatternAt(controller, pos)) {
                 controller.onStructureInvalid();
                 if (controller.hasOldBlock()) {
                     if (hasRenderMask) {
@@ -178,19 +425,70 @@ public class MultiblockState {
         }
     }
 
+    private boolean checkPatternAt(IControllerComponent controller, BlockPos pos) {
+        BlockPattern pattern = checkedPattern;
+        if (pattern != null && pattern == controller.getPattern() && pattern.checkPositionAt(this, pos.immutable())) {
+            return true;
+        }
+        if (controller.checkPattern()) {
+            MultiblockWorldSavedData.getOrCreate(world).updateMapping(this);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Restore the structure from the persisted cache if possible, the full pattern check is deferred, see {@link #revalidate()}.
+     * Nothing is done until all chunks of the structure are loaded, the load of the last one does it.
+     */
     public void onChunkLoad() {
+        try {
+            IControllerComponent controller = getController();
+            if (controller != null && areChunksLoaded()) {
+                if (!isFormed() && controller.getMultiblockState() == this && controller.restoreFromCache()) {
+                    if (!controller.needAlwaysUpdate()) {
+                        MultiblockWorldSavedData.getOrCreate(world).addLoading(controller);
+                    }
+                }
+                MultiblockWorldSavedData.getOrCreate(world).addRevalidation(this);
+            }
+        } catch (Throwable e) { // if controller loading failed.
+            MultiblockWorldSavedData.getOrCreate(world).removeMapping(this);
+            Multiblocked.LOGGER.error("An error while loading the controller world: {} pos: {}, {}", world.dimensionType(), controllerPos, e);
+        }
+    }
+
+    /**
+     * Full pattern check of a loaded structure. A restored structure is kept if the check only failed on unloaded blocks,
+     * it will be checked again.
+     */
+    public void revalidate() {
         try {
             IControllerComponent controller = getController();
             if (controller != null) {
+                boolean restored = isFormed();
+                // a failed check cleans the state, see BlockPattern#checkPatternAt
+                LongOpenHashSet restoredCache = cache;
+                PatternMatchContext restoredContext = matchContext;
                 if (controller.checkPattern()) {
+                    MultiblockWorldSavedData.getOrCreate(world).updateMapping(this);
                     if (!controller.needAlwaysUpdate()) {
                         MultiblockWorldSavedData.getOrCreate(world).addLoading(controller);
                     }
-                    if (controller.getCapabilitiesProxy() == null) {
+                    if (restored || controller.getCapabilitiesProxy() == null) { // match context is available now.
                         controller.onStructureFormed();
                     }
+                } else if (restored && error == UNLOAD_ERROR) {
+                    cache = restoredCache;
+                    restore();
+                    matchContext = restoredContext;
+                    invalidateBounds();
+                    MultiblockWorldSavedData.getOrCreate(world).addRevalidation(this);
                 } else {
                     error = UNLOAD_ERROR;
+                    if (restored) {
+                        controller.onStructureInvalid();
+                    }
                 }
             }
         } catch (Throwable e) { // if controller loading failed.
@@ -214,6 +512,7 @@ public class MultiblockState {
     public void deserialize(FriendlyByteBuf buffer) {
         int size = buffer.readVarInt();
         cache = new LongOpenHashSet();
+        invalidateBounds();
         for (int i = 0; i < size; i++) {
             cache.add(buffer.readVarLong());
         }
@@ -225,4 +524,74 @@ public class MultiblockState {
             buffer.writeVarLong(aLong);
         }
     }
+
+    /**
+     * Compact format of cached positions. The bounding box relative to the controller is written first,
+     * followed by run-length encoded positions inside the box (x first, then z, then y).
+     */
+    public static void writePositions(FriendlyByteBuf buffer, BlockPos controllerPos, long[] positions) {
+        buffer.writeVarInt(positions.length);
+        if (positions.length == 0) return;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (long pos : positions) {
+            int x = BlockPos.getX(pos), y = BlockPos.getY(pos), z = BlockPos.getZ(pos);
+            minX = Math.min(minX, x); minY = Math.min(minY, y); minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x); maxY = Math.max(maxY, y); maxZ = Math.max(maxZ, z);
+        }
+        int sizeX = maxX - minX + 1, sizeZ = maxZ - minZ + 1;
+        buffer.writeVarInt(zigzag(minX - controllerPos.getX()));
+        buffer.writeVarInt(zigzag(minY - controllerPos.getY()));
+        buffer.writeVarInt(zigzag(minZ - controllerPos.getZ()));
+        buffer.writeVarInt(sizeX);
+        buffer.writeVarInt(maxY - minY + 1);
+        buffer.writeVarInt(sizeZ);
+        BitSet bits = new BitSet();
+        for (long pos : positions) {
+            bits.set(((BlockPos.getY(pos) - minY) * sizeZ + BlockPos.getZ(pos) - minZ) * sizeX + BlockPos.getX(pos) - minX);
+        }
+        IntArrayList runs = new IntArrayList();
+        for (int start = bits.nextSetBit(0), last = 0; start >= 0; start = bits.nextSetBit(last)) {
+            int end = bits.nextClearBit(start);
+            runs.add(start - last); // gap
+            runs.add(end - start); // length
+            last = end;
+        }
+        buffer.writeVarInt(runs.size() / 2);
+        for (int i = 0; i < runs.size(); i++) {
+            buffer.writeVarInt(runs.getInt(i));
+        }
+    }
+
+    /**
+     * read positions written by {@link #writePositions(FriendlyByteBuf, BlockPos, long[])}.
+     */
+    public static LongOpenHashSet readPositions(FriendlyByteBuf buffer, BlockPos controllerPos) {
+        int size = buffer.readVarInt();
+        LongOpenHashSet positions = new LongOpenHashSet(size);
+        if (size == 0) return positions;
+        int minX = controllerPos.getX() + unzigzag(buffer.readVarInt());
+        int minY = controllerPos.getY() + unzigzag(buffer.readVarInt());
+        int minZ = controllerPos.getZ() + unzigzag(buffer.readVarInt());
+        int sizeX = buffer.readVarInt();
+        buffer.readVarInt(); // sizeY
+        int sizeZ = buffer.readVarInt();
+        int runs = buffer.readVarInt();
+        for (int i = 0, index = 0; i < runs; i++) {
+            index += buffer.readVarInt();
+            for (int end = index + buffer.readVarInt(); index < end; index++) {
+                int x = index % sizeX, z = (index / sizeX) % sizeZ, y = index / sizeX / sizeZ;
+                positions.add(BlockPos.asLong(minX + x, minY + y, minZ + z));
+            }
+        }
+        return positions;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
 }
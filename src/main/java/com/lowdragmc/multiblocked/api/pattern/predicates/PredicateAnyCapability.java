@@ -13,7 +13,6 @@ import com.lowdragmc.multiblocked.api.capability.MultiblockCapability;
 import com.lowdragmc.multiblocked.api.pattern.MultiblockState;
 import com.lowdragmc.multiblocked.api.pattern.error.PatternStringError;
 import com.lowdragmc.multiblocked.api.registry.MbdCapabilities;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.util.GsonHelper;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.entity.BlockEntity;
@@ -58,8 +57,8 @@ public class PredicateAnyCapability extends SimplePredicate {
         if (io != null) {
             BlockEntity tileEntity = state.getTileEntity();
             if (tileEntity != null && capability.isBlockHasCapability(io, tileEntity)) {
-                Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> capabilities = state.getMatchContext().getOrCreate("capabilities", Long2ObjectOpenHashMap::new);
-                capabilities.computeIfAbsent(state.getPos().asLong(), l-> new EnumMap<>(IO.class))
+                Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> capabilities = state.getMatchContext().getOrCreateCapabilities();
+                capabilities.computeIfAbsent(state.pos.asLong(), l-> new EnumMap<>(IO.class))
                         .computeIfAbsent(io, x->new HashSet<>())
                         .add(capability);
                 return true;
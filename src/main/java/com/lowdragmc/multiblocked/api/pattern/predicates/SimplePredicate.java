@@ -164,10 +164,8 @@ public class SimplePredicate {
 
     public boolean testGlobal(MultiblockState blockWorldState) {
         if (minCount == -1 && maxCount == -1) return true;
-        Integer count = blockWorldState.globalCount.get(this);
         boolean base = predicate.test(blockWorldState);
-        count = (count == null ? 0 : count) + (base ? 1 : 0);
-        blockWorldState.globalCount.put(this, count);
+        int count = blockWorldState.countGlobal(this, base);
         if (maxCount == -1 || count <= maxCount) return base;
         blockWorldState.setError(new SinglePredicateError(this, 0));
         return false;
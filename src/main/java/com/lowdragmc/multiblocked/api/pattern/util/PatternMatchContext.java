@@ -1,23 +1,50 @@
 package com.lowdragmc.multiblocked.api.pattern.util;
 
+import com.lowdragmc.multiblocked.api.capability.IO;
+import com.lowdragmc.multiblocked.api.capability.MultiblockCapability;
+import com.lowdragmc.multiblocked.api.pattern.TraceabilityPredicate;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Supplier;
 
 /**
  * Contains an context used for storing temporary data
  * related to current check and shared between all predicates doing it
+ * <br>
+ * "parts", "capabilities" and "predicates" are kept in typed fields, they are still accessible by their keys.
  */
 public class PatternMatchContext {
+    public static final String PARTS = "parts";
+    public static final String CAPABILITIES = "capabilities";
+    public static final String PREDICATES = "predicates";
 
     private final Map<String, Object> data = new HashMap<>();
+    private LongOpenHashSet parts;
+    private Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> capabilities;
+    private Map<BlockPos, TraceabilityPredicate> predicates;
 
     public void reset() {
         this.data.clear();
+        this.parts = null;
+        this.capabilities = null;
+        this.predicates = null;
     }
 
+    @SuppressWarnings("unchecked")
     public void set(String key, Object value) {
-        this.data.put(key, value);
+        switch (key) {
+            case PARTS -> this.parts = (LongOpenHashSet) value;
+            case CAPABILITIES -> this.capabilities = (Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>>) value;
+            case PREDICATES -> this.predicates = (Map<BlockPos, TraceabilityPredicate>) value;
+            default -> this.data.put(key, value);
+        }
     }
 
     public int getInt(String key) {
@@ -28,14 +55,19 @@ public class PatternMatchContext {
         set(key, getOrDefault(key, 0) + value);
     }
 
-    @SuppressWarnings("unchecked")
     public <T> T getOrDefault(String key, T defaultValue) {
-        return (T) data.getOrDefault(key, defaultValue);
+        T result = get(key);
+        return result == null && !data.containsKey(key) ? defaultValue : result;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T get(String key) {
-        return (T) data.get(key);
+        return (T) switch (key) {
+            case PARTS -> parts;
+            case CAPABILITIES -> capabilities;
+            case PREDICATES -> predicates;
+            default -> data.get(key);
+        };
     }
 
     public <T> T getOrCreate(String key, Supplier<T> creator) {
@@ -57,7 +89,88 @@ public class PatternMatchContext {
     }
 
     public boolean containsKey (String key) {
-        return data.containsKey(key);
+        return switch (key) {
+            case PARTS -> parts != null;
+            case CAPABILITIES -> capabilities != null;
+            case PREDICATES -> predicates != null;
+            default -> data.containsKey(key);
+        };
+    }
+
+    /**
+     * merge the context of another part of the same check, positions of both parts are disjoint.
+     *
+     * @return false - a value can't be merged, only position sets, position keyed maps and int counters are supported.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean merge(PatternMatchContext other) {
+        if (other.parts != null) {
+            getOrCreateParts().addAll(other.parts);
+        }
+        if (other.capabilities != null) {
+            getOrCreateCapabilities().putAll(other.capabilities);
+        }
+        if (other.predicates != null) {
+            getOrCreatePredicates().putAll(other.predicates);
+        }
+        for (Map.Entry<String, Object> entry : other.data.entrySet()) {
+            Object current = data.get(entry.getKey());
+            Object value = entry.getValue();
+            if (current == null) {
+                data.put(entry.getKey(), value);
+            } else if (current instanceof LongSet set && value instanceof LongSet added) {
+                set.addAll(added);
+            } else if (current instanceof Map<?, ?> map && value instanceof Map<?, ?> added) {
+                ((Map<Object, Object>) map).putAll(added);
+            } else if (current instanceof Integer count && value instanceof Integer added) {
+                data.put(entry.getKey(), count + added);
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * positions of detected parts, null if there is no part.
+     */
+    public LongOpenHashSet getParts() {
+        return parts;
+    }
+
+    public LongOpenHashSet getOrCreateParts() {
+        if (parts == null) {
+            parts = new LongOpenHashSet();
+        }
+        return parts;
+    }
+
+    /**
+     * detected capabilities per position, null if nothing detected.
+     */
+    public Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> getCapabilities() {
+        return capabilities;
+    }
+
+    public Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> getOrCreateCapabilities() {
+        if (capabilities == null) {
+            capabilities = new Long2ObjectOpenHashMap<>();
+        }
+        return capabilities;
+    }
+
+    /**
+     * matched predicates per position, only saved if requested by the check.
+     */
+    public Map<BlockPos, TraceabilityPredicate> getPredicates() {
+        return predicates;
+    }
+
+    public Map<BlockPos, TraceabilityPredicate> getOrCreatePredicates() {
+        if (predicates == null) {
+            predicates = new HashMap<>();
+        }
+        return predicates;
     }
 
 }
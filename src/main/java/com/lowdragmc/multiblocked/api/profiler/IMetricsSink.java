@@ -0,0 +1,22 @@
+package com.lowdragmc.multiblocked.api.profiler;
+
+/**
+ * Receives the profiler metrics once per second on the server thread, see {@link MbdProfiler#registerSink(IMetricsSink)}.
+ * <br>
+ * Counters are cumulative since the profiler was (re)started, gauges are the current values.
+ */
+public interface IMetricsSink {
+
+    /**
+     * @param metric metric name, e.g. "update_nanos".
+     * @param target "global", a definition id, or "definition@dimension:x,y,z" of a controller.
+     * @param value  value.
+     */
+    void accept(String metric, String target, long value);
+
+    /**
+     * called after all metrics of a report are accepted.
+     */
+    default void flush() {
+    }
+}
@@ -0,0 +1,254 @@
+package com.lowdragmc.multiblocked.api.profiler;
+
+import com.lowdragmc.multiblocked.api.capability.ICapabilityProxyHolder;
+import com.lowdragmc.multiblocked.api.tile.IComponent;
+import com.lowdragmc.multiblocked.api.tile.IControllerComponent;
+import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server side hot-path counters per definition and per controller.
+ * <br>
+ * Nothing is recorded unless a profiling session is started (/mbd profile start) or a {@link IMetricsSink} is registered.
+ * Controllers are kept by their dimension and position, and dropped when they are removed.
+ */
+public class MbdProfiler {
+    public record ControllerKey(ResourceKey<Level> dimension, BlockPos pos, ResourceLocation definition) {
+        @Override
+        public String toString() {
+            return definition + "@" + dimension.location() + ":" + pos.getX() + "," + pos.getY() + "," + pos.getZ();
+        }
+    }
+
+    private record ControllerStats(ResourceLocation definition, ProfileStats stats) { }
+
+    private static final Map<ResourceLocation, ProfileStats> DEFINITIONS = new ConcurrentHashMap<>();
+    // dimension -> pos -> stats, a map is locked by itself
+    private static final Map<ResourceKey<Level>, Long2ObjectOpenHashMap<ControllerStats>> CONTROLLERS = new ConcurrentHashMap<>();
+    private static final LongAdder ASYNC_PERIODS = new LongAdder();
+    private static final LongAdder ASYNC_PERIOD_NANOS = new LongAdder();
+    private static final LongAccumulator ASYNC_PERIOD_MAX_NANOS = new LongAccumulator(Math::max, 0);
+    private static final List<IMetricsSink> SINKS = new CopyOnWriteArrayList<>();
+    private static volatile boolean enabled;
+    private static long startNanos;
+    private static int reportTimer;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * start a profiling session, all counters are reset.
+     */
+    public static void start() {
+        DEFINITIONS.clear();
+        CONTROLLERS.clear();
+        ASYNC_PERIODS.reset();
+        ASYNC_PERIOD_NANOS.reset();
+        ASYNC_PERIOD_MAX_NANOS.reset();
+        startNanos = System.nanoTime();
+        enabled = true;
+    }
+
+    /**
+     * stop the profiling session, counters are kept for reporting. Registered sinks keep the profiler enabled.
+     */
+    public static void stop() {
+        enabled = !SINKS.isEmpty();
+    }
+
+    public static void registerSink(IMetricsSink sink) {
+        SINKS.add(sink);
+        if (!enabled) {
+            start();
+        }
+    }
+
+    public static void unregisterSink(IMetricsSink sink) {
+        SINKS.remove(sink);
+    }
+
+    public static long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public static Map<ResourceLocation, ProfileStats> getDefinitions() {
+        return Collections.unmodifiableMap(DEFINITIONS);
+    }
+
+    /**
+     * a snapshot of the controller stats.
+     */
+    public static Map<ControllerKey, ProfileStats> getControllers() {
+        Map<ControllerKey, ProfileStats> result = new HashMap<>();
+        CONTROLLERS.forEach((dimension, controllers) -> {
+            synchronized (controllers) {
+                for (Long2ObjectMap.Entry<ControllerStats> entry : controllers.long2ObjectEntrySet()) {
+                    result.put(new ControllerKey(dimension, BlockPos.of(entry.getLongKey()), entry.getValue().definition), entry.getValue().stats);
+                }
+            }
+        });
+        return result;
+    }
+
+    public static long getAsyncPeriods() {
+        return ASYNC_PERIODS.sum();
+    }
+
+    public static long getAsyncPeriodNanos() {
+        return ASYNC_PERIOD_NANOS.sum();
+    }
+
+    public static long getAsyncPeriodMaxNanos() {
+        return ASYNC_PERIOD_MAX_NANOS.get();
+    }
+
+    // ********************************* recording ********************************* //
+
+    public static void onUpdate(IComponent component, long nanos) {
+        recordUpdate(getDefinitionStats(component), nanos);
+        ProfileStats controller = getControllerStats(component);
+        if (controller != null) {
+            recordUpdate(controller, nanos);
+        }
+    }
+
+    private static void recordUpdate(ProfileStats stats, long nanos) {
+        stats.updates.increment();
+        stats.updateNanos.add(nanos);
+    }
+
+    public static void onRecipeSearch(ICapabilityProxyHolder holder, int candidates, boolean hit) {
+        if (holder instanceof IControllerComponent controller) {
+            recordSearch(getDefinitionStats(controller), candidates, hit);
+            ProfileStats stats = getControllerStats(controller);
+            if (stats != null) {
+                recordSearch(stats, candidates, hit);
+            }
+        }
+    }
+
+    private static void recordSearch(ProfileStats stats, int candidates, boolean hit) {
+        stats.searches.increment();
+        stats.searchCandidates.add(candidates);
+        if (hit) {
+            stats.searchHits.increment();
+        }
+    }
+
+    public static void onKubeJS(IComponent component, long nanos) {
+        getDefinitionStats(component).kubejsNanos.add(nanos);
+        ProfileStats controller = getControllerStats(component);
+        if (controller != null) {
+            controller.kubejsNanos.add(nanos);
+        }
+    }
+
+    public static void onPatternCheck(IControllerComponent controller, long nanos) {
+        recordPatternCheck(getDefinitionStats(controller), nanos);
+        ProfileStats stats = getControllerStats(controller);
+        if (stats != null) {
+            recordPatternCheck(stats, nanos);
+        }
+    }
+
+    private static void recordPatternCheck(ProfileStats stats, long nanos) {
+        stats.patternChecks.increment();
+        stats.patternNanos.add(nanos);
+    }
+
+    public static void onAsyncPeriod(long nanos) {
+        ASYNC_PERIODS.increment();
+        ASYNC_PERIOD_NANOS.add(nanos);
+        ASYNC_PERIOD_MAX_NANOS.accumulate(nanos);
+    }
+
+    /**
+     * drop the stats of a removed controller.
+     */
+    public static void onRemoved(IComponent component) {
+        Level level = component.self().getLevel();
+        Long2ObjectOpenHashMap<ControllerStats> controllers = level == null ? null : CONTROLLERS.get(level.dimension());
+        if (controllers != null) {
+            long pos = component.self().getBlockPos().asLong();
+            synchronized (controllers) {
+                ControllerStats stats = controllers.get(pos);
+                if (stats != null && stats.definition.equals(component.getDefinition().location)) {
+                    controllers.remove(pos);
+                }
+            }
+        }
+    }
+
+    private static ProfileStats getDefinitionStats(IComponent component) {
+        ResourceLocation location = component.getDefinition().location;
+        ProfileStats stats = DEFINITIONS.get(location);
+        return stats == null ? DEFINITIONS.computeIfAbsent(location, l -> new ProfileStats()) : stats;
+    }
+
+    @Nullable
+    private static ProfileStats getControllerStats(IComponent component) {
+        Level level = component.self().getLevel();
+        if (!(component instanceof IControllerComponent) || level == null) return null;
+        Long2ObjectOpenHashMap<ControllerStats> controllers = CONTROLLERS.get(level.dimension());
+        if (controllers == null) {
+            controllers = CONTROLLERS.computeIfAbsent(level.dimension(), d -> new Long2ObjectOpenHashMap<>());
+        }
+        long pos = component.self().getBlockPos().asLong();
+        ResourceLocation definition = component.getDefinition().location;
+        synchronized (controllers) {
+            ControllerStats stats = controllers.get(pos);
+            if (stats == null || !stats.definition.equals(definition)) {
+                stats = new ControllerStats(definition, new ProfileStats());
+                controllers.put(pos, stats);
+            }
+            return stats.stats;
+        }
+    }
+
+    // ********************************* reporting ********************************* //
+
+    /**
+     * called at the end of each server tick.
+     */
+    public static void onServerTick() {
+        if (enabled && !SINKS.isEmpty() && ++reportTimer >= 20) {
+            reportTimer = 0;
+            for (IMetricsSink sink : SINKS) {
+                report(sink);
+            }
+        }
+    }
+
+    public static void report(IMetricsSink sink) {
+        sink.accept("elapsed_nanos", "global", getElapsedNanos());
+        sink.accept("async_periods", "global", getAsyncPeriods());
+        sink.accept("async_period_nanos", "global", getAsyncPeriodNanos());
+        sink.accept("async_period_max_nanos", "global", getAsyncPeriodMaxNanos());
+        sink.accept("revalidation_queue", "global", MultiblockWorldSavedData.getPendingRevalidations());
+        DEFINITIONS.forEach((location, stats) -> {
+            String target = location.toString();
+            stats.forEach((metric, value) -> sink.accept(metric, target, value));
+        });
+        getControllers().forEach((controller, stats) -> {
+            String target = controller.toString();
+            stats.forEach((metric, value) -> sink.accept(metric, target, value));
+        });
+        sink.flush();
+    }
+}
@@ -0,0 +1,39 @@
+package com.lowdragmc.multiblocked.api.profiler;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Cumulative counters of a definition or a controller, they can be recorded from any thread.
+ */
+public class ProfileStats {
+    public final LongAdder updates = new LongAdder();
+    public final LongAdder updateNanos = new LongAdder();
+    public final LongAdder searches = new LongAdder();
+    public final LongAdder searchHits = new LongAdder();
+    public final LongAdder searchCandidates = new LongAdder();
+    public final LongAdder kubejsNanos = new LongAdder();
+    public final LongAdder patternChecks = new LongAdder();
+    public final LongAdder patternNanos = new LongAdder();
+
+    public double getHitRatio() {
+        long searches = this.searches.sum();
+        return searches == 0 ? 0 : searchHits.sum() / (double) searches;
+    }
+
+    public double getAverageCandidates() {
+        long searches = this.searches.sum();
+        return searches == 0 ? 0 : searchCandidates.sum() / (double) searches;
+    }
+
+    public void forEach(ObjLongConsumer<String> consumer) {
+        consumer.accept("updates", updates.sum());
+        consumer.accept("update_nanos", updateNanos.sum());
+        consumer.accept("searches", searches.sum());
+        consumer.accept("search_hits", searchHits.sum());
+        consumer.accept("search_candidates", searchCandidates.sum());
+        consumer.accept("kubejs_nanos", kubejsNanos.sum());
+        consumer.accept("pattern_checks", patternChecks.sum());
+        consumer.accept("pattern_nanos", patternNanos.sum());
+    }
+}
@@ -8,6 +8,7 @@ import com.lowdragmc.multiblocked.api.capability.ICapabilityProxyHolder;
 import com.lowdragmc.multiblocked.api.capability.IO;
 import com.lowdragmc.multiblocked.api.capability.MultiblockCapability;
 import com.lowdragmc.multiblocked.api.capability.proxy.CapabilityProxy;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
@@ -26,6 +27,9 @@ public class Recipe {
     public final int duration;
     public final Component text;
     public final ImmutableList<RecipeCondition> conditions;
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[16]);
+    // contents grouped by slot for read-only matching, built lazily.
+    private final Map<ImmutableMap<MultiblockCapability<?>, ImmutableList<Content>>, Map<MultiblockCapability<?>, ContentGroup>> contentGroups = new IdentityHashMap<>();
 
     public Recipe(String uid,
                   ImmutableMap<MultiblockCapability<?>, ImmutableList<Content>> inputs,
@@ -99,68 +103,109 @@ public class Recipe {
         return true;
     }
 
-    @SuppressWarnings("ALL")
     public boolean matchRecipe(IO io, ICapabilityProxyHolder holder, ImmutableMap<MultiblockCapability<?>, ImmutableList<Content>> contents) {
         Table<IO, MultiblockCapability<?>, Long2ObjectOpenHashMap<CapabilityProxy<?>>> capabilityProxies = holder.getCapabilitiesProxy();
         for (Map.Entry<MultiblockCapability<?>, ImmutableList<Content>> entry : contents.entrySet()) {
-            Set<CapabilityProxy<?>> used = new HashSet<>();
-            List content = new ArrayList<>();
-            Map<String, List> contentSlot = new HashMap<>();
-            for (Content cont : entry.getValue()) {
-                if (cont.slotName == null) {
-                    content.add(cont.content);
-                } else {
-                    contentSlot.computeIfAbsent(cont.slotName, s -> new ArrayList<>()).add(cont.content);
+            MultiblockCapability<?> capability = entry.getKey();
+            if (entry.getValue().isEmpty()) continue;
+            ContentGroup group = getContentGroup(contents, capability, entry.getValue());
+            if (group.remaining == null) { // simulating isn't supported by this capability
+                if (!searchRecipe(io, capabilityProxies, capability, entry.getValue())) return false;
+                continue;
+            }
+            long[] remaining = group.initRemaining(SCRATCH.get());
+            Long2ObjectOpenHashMap<CapabilityProxy<?>> proxies = capabilityProxies.get(io, capability);
+            if (proxies != null) {
+                for (CapabilityProxy<?> proxy : proxies.values()) { // search same io type
+                    if (group.simulate(io, this, proxy, remaining)) break;
                 }
             }
-            MultiblockCapability<?> capability = entry.getKey();
-            content = content.stream().map(capability::copyContent).toList();
-            if (content.isEmpty() && contentSlot.isEmpty()) continue;
-            if (content.isEmpty()) content = null;
-            if (capabilityProxies.contains(io, capability)) {
-                for (CapabilityProxy<?> proxy : capabilityProxies.get(io, capability).values()) { // search same io type
-                    if (used.contains(proxy)) continue;
-                    used.add(proxy);
-                    if (content != null) {
-                        content = proxy.searchingRecipe(io, this, content, null);
-                    }
-                    if (proxy.slots != null) {
-                        Iterator<String> iterator = contentSlot.keySet().iterator();
-                        while (iterator.hasNext()) {
-                            String key = iterator.next();
-                            if (proxy.slots.contains(key)) {
-                                List<?> left = proxy.searchingRecipe(io, this, contentSlot.get(key), key);
-                                if (left == null) iterator.remove();
-                            }
+            if (group.isDone(remaining)) continue;
+            Long2ObjectOpenHashMap<CapabilityProxy<?>> bothProxies = capabilityProxies.get(IO.BOTH, capability);
+            if (bothProxies != null) {
+                for (Long2ObjectMap.Entry<CapabilityProxy<?>> proxyEntry : bothProxies.long2ObjectEntrySet()) { // search both type
+                    if (proxies != null && proxies.containsKey(proxyEntry.getLongKey())) continue;
+                    if (group.simulate(io, this, proxyEntry.getValue(), remaining)) break;
+                }
+            }
+            if (!group.isDone(remaining)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Matching by copying contents, used by capabilities which don't support read-only simulation.
+     */
+    @SuppressWarnings("ALL")
+    private boolean searchRecipe(IO io, Table<IO, MultiblockCapability<?>, Long2ObjectOpenHashMap<CapabilityProxy<?>>> capabilityProxies, MultiblockCapability<?> capability, ImmutableList<Content> contents) {
+        Set<CapabilityProxy<?>> used = new HashSet<>();
+        List content = new ArrayList<>();
+        Map<String, List> contentSlot = new HashMap<>();
+        for (Content cont : contents) {
+            if (cont.slotName == null) {
+                content.add(cont.content);
+            } else {
+                contentSlot.computeIfAbsent(cont.slotName, s -> new ArrayList<>()).add(cont.content);
+            }
+        }
+        if (content.isEmpty() && contentSlot.isEmpty()) return true;
+        if (content.isEmpty()) content = null;
+        if (capabilityProxies.contains(io, capability)) {
+            for (CapabilityProxy<?> proxy : capabilityProxies.get(io, capability).values()) { // search same io type
+                if (used.contains(proxy)) continue;
+                used.add(proxy);
+                if (content != null) {
+                    content = proxy.searchingRecipe(io, this, content, null);
+                }
+                if (proxy.slots != null) {
+                    Iterator<String> iterator = contentSlot.keySet().iterator();
+                    while (iterator.hasNext()) {
+                        String key = iterator.next();
+                        if (proxy.slots.contains(key)) {
+                            List<?> left = proxy.searchingRecipe(io, this, contentSlot.get(key), key);
+                            if (left == null) iterator.remove();
                         }
                     }
-                    if (content == null && contentSlot.isEmpty()) break;
                 }
+                if (content == null && contentSlot.isEmpty()) break;
             }
-            if (content == null && contentSlot.isEmpty()) continue;
-            if (capabilityProxies.contains(IO.BOTH, capability)) {
-                for (CapabilityProxy<?> proxy : capabilityProxies.get(IO.BOTH, capability).values()) { // search both type
-                    if (used.contains(proxy)) continue;
-                    used.add(proxy);
-                    if (content != null) {
-                        content = proxy.searchingRecipe(io, this, content, null);
-                    }
-                    if (proxy.slots != null) {
-                        Iterator<String> iterator = contentSlot.keySet().iterator();
-                        while (iterator.hasNext()) {
-                            String key = iterator.next();
-                            if (proxy.slots.contains(key)) {
-                                List<?> left = proxy.searchingRecipe(io, this, contentSlot.get(key), key);
-                                if (left == null) iterator.remove();
-                            }
+        }
+        if (content == null && contentSlot.isEmpty()) return true;
+        if (capabilityProxies.contains(IO.BOTH, capability)) {
+            for (CapabilityProxy<?> proxy : capabilityProxies.get(IO.BOTH, capability).values()) { // search both type
+                if (used.contains(proxy)) continue;
+                used.add(proxy);
+                if (content != null) {
+                    content = proxy.searchingRecipe(io, this, content, null);
+                }
+                if (proxy.slots != null) {
+                    Iterator<String> iterator = contentSlot.keySet().iterator();
+                    while (iterator.hasNext()) {
+                        String key = iterator.next();
+                        if (proxy.slots.contains(key)) {
+                            List<?> left = proxy.searchingRecipe(io, this, contentSlot.get(key), key);
+                            if (left == null) iterator.remove();
                         }
                     }
-                    if (content == null && contentSlot.isEmpty()) break;
                 }
+                if (content == null && contentSlot.isEmpty()) break;
             }
-            if (content != null || !contentSlot.isEmpty()) return false;
         }
-        return true;
+        return content == null && contentSlot.isEmpty();
+    }
+
+    private ContentGroup getContentGroup(ImmutableMap<MultiblockCapability<?>, ImmutableList<Content>> contents, MultiblockCapability<?> capability, ImmutableList<Content> list) {
+        Map<MultiblockCapability<?>, ContentGroup> groups = contentGroups.get(contents);
+        if (groups == null) {
+            groups = new IdentityHashMap<>();
+            contentGroups.put(contents, groups);
+        }
+        ContentGroup group = groups.get(capability);
+        if (group == null) {
+            group = new ContentGroup(capability, list);
+            groups.put(capability, group);
+        }
+        return group;
     }
 
     public boolean handleTickRecipeIO(IO io, ICapabilityProxyHolder holder) {
@@ -190,7 +235,6 @@ public class Recipe {
                 }
             }
             MultiblockCapability<?> capability = entry.getKey();
-            content = content.stream().map(capability::copyContent).toList();
             if (content.isEmpty() && contentSlot.isEmpty()) continue;
             if (content.isEmpty()) content = null;
             if (capabilityProxies.contains(io, capability)) {
@@ -301,4 +345,94 @@ public class Recipe {
         }
         return true;
     }
+
+    /**
+     * Contents of a capability, grouped by slot name, and their amounts for read-only matching.
+     * {@link #remaining} indexes are shared by all groups: unnamed contents first, then each slot.
+     */
+    private static class ContentGroup {
+        private final List<Object> contents;
+        private final String[] slotNames;
+        private final List<Object>[] slotContents;
+        private final int[] slotOffsets;
+        // null - simulating isn't supported
+        private final long[] remaining;
+
+        @SuppressWarnings("unchecked")
+        private ContentGroup(MultiblockCapability<?> capability, ImmutableList<Content> list) {
+            List<Object> contents = new ArrayList<>();
+            Map<String, List<Object>> contentSlot = new LinkedHashMap<>();
+            for (Content cont : list) {
+                if (cont.slotName == null) {
+                    contents.add(cont.content);
+                } else {
+                    contentSlot.computeIfAbsent(cont.slotName, s -> new ArrayList<>()).add(cont.content);
+                }
+            }
+            this.contents = contents;
+            this.slotNames = contentSlot.keySet().toArray(String[]::new);
+            this.slotContents = contentSlot.values().toArray(List[]::new);
+            this.slotOffsets = new int[slotNames.length];
+            int size = contents.size();
+            for (int i = 0; i < slotNames.length; i++) {
+                slotOffsets[i] = size;
+                size += slotContents[i].size();
+            }
+            long[] amounts = new long[size];
+            int index = 0;
+            for (Object content : contents) {
+                amounts[index++] = capability.getContentAmount(content);
+            }
+            for (List<Object> slotContent : slotContents) {
+                for (Object content : slotContent) {
+                    amounts[index++] = capability.getContentAmount(content);
+                }
+            }
+            boolean supported = true;
+            for (long amount : amounts) {
+                if (amount < 0) {
+                    supported = false;
+                    break;
+                }
+            }
+            this.remaining = supported ? amounts : null;
+        }
+
+        private long[] initRemaining(long[] scratch) {
+            if (scratch.length < remaining.length) {
+                scratch = new long[Math.max(remaining.length, scratch.length * 2)];
+                SCRATCH.set(scratch);
+            }
+            System.arraycopy(remaining, 0, scratch, 0, remaining.length);
+            return scratch;
+        }
+
+        private boolean isDone(long[] remaining, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (remaining[i] > 0) return false;
+            }
+            return true;
+        }
+
+        private boolean isDone(long[] remaining) {
+            return isDone(remaining, 0, this.remaining.length);
+        }
+
+        /**
+         * @return whether all contents are matched.
+         */
+        private boolean simulate(IO io, Recipe recipe, CapabilityProxy<?> proxy, long[] remaining) {
+            if (!isDone(remaining, 0, contents.size())) {
+                proxy.simulateRecipe(io, recipe, contents, remaining, 0, null);
+            }
+            if (proxy.slots != null) {
+                for (int i = 0; i < slotNames.length; i++) {
+                    if (proxy.slots.contains(slotNames[i]) && !isDone(remaining, slotOffsets[i], slotOffsets[i] + slotContents[i].size())) {
+                        proxy.simulateRecipe(io, recipe, slotContents[i], remaining, slotOffsets[i], slotNames[i]);
+                    }
+                }
+            }
+            return isDone(remaining);
+        }
+    }
 }
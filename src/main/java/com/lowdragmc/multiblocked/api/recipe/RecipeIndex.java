@@ -0,0 +1,108 @@
+package com.lowdragmc.multiblocked.api.recipe;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.lowdragmc.multiblocked.api.capability.ICapabilityProxyHolder;
+import com.lowdragmc.multiblocked.api.capability.IO;
+import com.lowdragmc.multiblocked.api.capability.MultiblockCapability;
+import com.lowdragmc.multiblocked.api.capability.proxy.CapabilityProxy;
+import com.lowdragmc.multiblocked.api.profiler.MbdProfiler;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ingredient index of a recipe list, keyed by capability and content identity (item, fluid, chemical type...).
+ * <br>
+ * Each recipe is indexed by its most selective input content (the one with the fewest keys).
+ * A search only tests recipes whose indexed input is present in the proxies of the holder,
+ * and recipes without indexable inputs. Results keep the order of the indexed list, so they are the same as a linear scan.
+ */
+public class RecipeIndex {
+    private final List<Recipe> recipes;
+    private final Map<MultiblockCapability<?>, Map<Object, IntArrayList>> index = new Object2ObjectOpenHashMap<>();
+    private final Map<MultiblockCapability<?>, BitSet> indexedByCapability = new Object2ObjectOpenHashMap<>();
+    private final BitSet unindexed = new BitSet();
+
+    public RecipeIndex(Collection<Recipe> recipes) {
+        this.recipes = new ArrayList<>(recipes);
+        for (int i = 0; i < this.recipes.size(); i++) {
+            Recipe recipe = this.recipes.get(i);
+            MultiblockCapability<?> anchorCapability = null;
+            Collection<?> anchorKeys = null;
+            for (ImmutableMap<MultiblockCapability<?>, ImmutableList<Content>> contents : List.of(recipe.inputs, recipe.tickInputs)) {
+                for (Map.Entry<MultiblockCapability<?>, ImmutableList<Content>> entry : contents.entrySet()) {
+                    for (Content content : entry.getValue()) {
+                        Collection<?> keys = entry.getKey().getContentIndexKeys(content.content);
+                        if (keys != null && !keys.isEmpty() && (anchorKeys == null || keys.size() < anchorKeys.size())) {
+                            anchorCapability = entry.getKey();
+                            anchorKeys = keys;
+                        }
+                    }
+                }
+            }
+            if (anchorKeys == null) {
+                unindexed.set(i);
+            } else {
+                Map<Object, IntArrayList> keyMap = index.computeIfAbsent(anchorCapability, c -> new Object2ObjectOpenHashMap<>());
+                for (Object key : anchorKeys) {
+                    keyMap.computeIfAbsent(key, k -> new IntArrayList()).add(i);
+                }
+                indexedByCapability.computeIfAbsent(anchorCapability, c -> new BitSet()).set(i);
+            }
+        }
+    }
+
+    public int size() {
+        return recipes.size();
+    }
+
+    /**
+     * find all recipes matching the holder.
+     */
+    public List<Recipe> searchRecipe(ICapabilityProxyHolder holder) {
+        BitSet candidates = (BitSet) unindexed.clone();
+        for (Map.Entry<MultiblockCapability<?>, Map<Object, IntArrayList>> entry : index.entrySet()) {
+            MultiblockCapability<?> capability = entry.getKey();
+            Map<Object, IntArrayList> keyMap = entry.getValue();
+            if (!collectCandidates(holder, IO.IN, capability, keyMap, candidates) ||
+                    !collectCandidates(holder, IO.BOTH, capability, keyMap, candidates)) {
+                candidates.or(indexedByCapability.get(capability));
+            }
+        }
+        List<Recipe> matches = new ArrayList<>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            Recipe recipe = recipes.get(i);
+            if (recipe.matchRecipe(holder) && recipe.matchTickRecipe(holder)) {
+                matches.add(recipe);
+            }
+        }
+        if (MbdProfiler.isEnabled()) {
+            MbdProfiler.onRecipeSearch(holder, candidates.cardinality(), !matches.isEmpty());
+        }
+        return matches;
+    }
+
+    private static boolean collectCandidates(ICapabilityProxyHolder holder, IO io, MultiblockCapability<?> capability, Map<Object, IntArrayList> keyMap, BitSet candidates) {
+        Long2ObjectOpenHashMap<CapabilityProxy<?>> proxies = holder.getCapabilitiesProxy().get(io, capability);
+        if (proxies == null) return true;
+        for (CapabilityProxy<?> proxy : proxies.values()) {
+            boolean listed = proxy.collectIndexKeys(key -> {
+                IntArrayList indexes = keyMap.get(key);
+                if (indexes != null) {
+                    for (int j = 0; j < indexes.size(); j++) {
+                        candidates.set(indexes.getInt(j));
+                    }
+                }
+            });
+            if (!listed) return false;
+        }
+        return true;
+    }
+}
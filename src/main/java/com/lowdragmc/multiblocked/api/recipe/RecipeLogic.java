@@ -1,17 +1,25 @@
 package com.lowdragmc.multiblocked.api.recipe;
 
+import com.google.common.collect.Table;
 import com.lowdragmc.multiblocked.Multiblocked;
 import com.lowdragmc.multiblocked.api.capability.IO;
+import com.lowdragmc.multiblocked.api.capability.MultiblockCapability;
 import com.lowdragmc.multiblocked.api.capability.proxy.CapabilityProxy;
+import com.lowdragmc.multiblocked.api.capability.trait.CapabilityTrait;
 import com.lowdragmc.multiblocked.api.kubejs.events.RecipeFinishEvent;
 import com.lowdragmc.multiblocked.api.kubejs.events.SearchRecipeEvent;
 import com.lowdragmc.multiblocked.api.kubejs.events.SetupRecipeEvent;
+import com.lowdragmc.multiblocked.api.profiler.MbdProfiler;
+import com.lowdragmc.multiblocked.api.tile.ComponentTileEntity;
 import com.lowdragmc.multiblocked.api.tile.IControllerComponent;
+import com.lowdragmc.multiblocked.api.tile.part.IPartComponent;
 import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
 import dev.latvian.mods.kubejs.script.ScriptType;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.level.block.entity.BlockEntity;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,6 +37,9 @@ public class RecipeLogic {
     private Status status = Status.IDLE;
     private long lastPeriod;
     private final MultiblockWorldSavedData mbwsd;
+    private volatile boolean notified = true;
+    private Table<IO, MultiblockCapability<?>, Long2ObjectOpenHashMap<CapabilityProxy<?>>> proxiesSource;
+    private volatile List<CapabilityProxy<?>> polledProxies;
 
     public RecipeLogic(IControllerComponent controller) {
         this.controller = controller;
@@ -41,10 +52,15 @@ public class RecipeLogic {
         return controller.getDefinition().getRecipeMap().isFuelRecipeMap();
     }
 
+    /**
+     * updates between recipe searches of an idle logic.
+     */
+    public static final int IDLE_POLL_INTERVAL = 5;
+
     public void update() {
         timer++;
         if (getStatus() != Status.IDLE && lastRecipe != null) {
-            if (getStatus() == Status.SUSPEND && timer % 5 == 0) {
+            if (getStatus() == Status.SUSPEND && timer % IDLE_POLL_INTERVAL == 0) {
                 checkAsyncRecipeSearching(this::handleRecipeWorking);
             } else {
                 handleRecipeWorking();
@@ -54,7 +70,7 @@ public class RecipeLogic {
             }
         } else if (lastRecipe != null) {
             findAndHandleRecipe();
-        } else if (timer % 5 == 0) {
+        } else if (timer % IDLE_POLL_INTERVAL == 0) {
             checkAsyncRecipeSearching(this::findAndHandleRecipe);
             if (lastFailedMatches != null) {
                 for (Recipe recipe : lastFailedMatches) {
@@ -92,6 +108,9 @@ public class RecipeLogic {
         if (mbwsd.getPeriodID() < lastPeriod) {
             lastPeriod = mbwsd.getPeriodID();
             changed.run();
+        } else if (notified) {
+            notified = false;
+            changed.run();
         } else {
             if (controller.hasProxies() && asyncChanged()) {
                 changed.run();
@@ -99,23 +118,81 @@ public class RecipeLogic {
         }
     }
 
+    /**
+     * Notify that contents of a proxy have changed, the recipe searching will be scheduled.
+     */
+    public void wakeUp() {
+        notified = true;
+        mbwsd.wakeUp(controller);
+    }
+
+    /**
+     * Whether a recipe is handled or a search is pending, the controller should be updated every tick then.
+     */
+    public boolean isBusy() {
+        return status != Status.IDLE || lastRecipe != null || notified;
+    }
+
+    /**
+     * Whether the idle logic has to poll, for contents of proxies which can't notify changes or conditions of failed matches.
+     * The controller shouldn't only be updated when woken then.
+     */
+    public boolean needPolling() {
+        if (lastFailedMatches != null) return true;
+        List<CapabilityProxy<?>> polled = polledProxies;
+        return controller.hasProxies() && (polled == null || !polled.isEmpty());
+    }
+
     public boolean asyncChanged() {
-        boolean needSearch = false;
-        for (Long2ObjectOpenHashMap<CapabilityProxy<?>> map : controller.getCapabilitiesProxy().values()) {
-            if (map != null) {
-                for (CapabilityProxy<?> proxy : map.values()) {
-                    if (proxy != null) {
-                        if (proxy.getLatestPeriodID() > lastPeriod) {
-                            lastPeriod = proxy.getLatestPeriodID();
-                            needSearch = true;
-                            break;
+        List<CapabilityProxy<?>> proxies = updatePolledProxies();
+        for (CapabilityProxy<?> proxy : proxies) {
+            if (proxy.getLatestPeriodID() > lastPeriod) {
+                lastPeriod = proxy.getLatestPeriodID();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Proxies which can't notify changes by {@link #wakeUp()}, they are still polled in the async thread.
+     *
+     * @return null - not collected yet, all proxies should be polled.
+     */
+    @Nullable
+    public List<CapabilityProxy<?>> getPolledProxies() {
+        return polledProxies;
+    }
+
+    private List<CapabilityProxy<?>> updatePolledProxies() {
+        Table<IO, MultiblockCapability<?>, Long2ObjectOpenHashMap<CapabilityProxy<?>>> proxies = controller.getCapabilitiesProxy();
+        List<CapabilityProxy<?>> polled = polledProxies;
+        if (polled == null || proxies != proxiesSource) {
+            proxiesSource = proxies;
+            polled = new ArrayList<>();
+            for (Long2ObjectOpenHashMap<CapabilityProxy<?>> map : proxies.values()) {
+                if (map != null) {
+                    for (CapabilityProxy<?> proxy : map.values()) {
+                        if (proxy != null && !canNotifyChanges(proxy)) {
+                            polled.add(proxy);
                         }
                     }
                 }
             }
-            if (needSearch) break;
+            polledProxies = polled;
+        }
+        return polled;
+    }
+
+    private boolean canNotifyChanges(CapabilityProxy<?> proxy) {
+        BlockEntity tileEntity = proxy.getTileEntity();
+        if (tileEntity instanceof ComponentTileEntity<?> component) {
+            CapabilityTrait trait = component.getTrait(proxy.capability);
+            if (trait != null && trait.canNotifyChanges()) {
+                return component == controller.self() || (component instanceof IPartComponent part && part.hasController(controller.self().getBlockPos()));
+            }
         }
-        return needSearch;
+        return false;
     }
 
     public void findAndHandleRecipe() {
@@ -130,8 +207,13 @@ public class RecipeLogic {
             List<Recipe> matches = recipeMap != null ? recipeMap.searchRecipe(this.controller) : new ArrayList<>();
 
             if (Multiblocked.isKubeJSLoaded() && controller.self().getLevel() != null) {
+                boolean profiling = MbdProfiler.isEnabled();
+                long start = profiling ? System.nanoTime() : 0;
                 SearchRecipeEvent event = new SearchRecipeEvent(this);
                 event.post(ScriptType.of(controller.self().getLevel()), SearchRecipeEvent.ID, controller.getSubID());
+                if (profiling) {
+                    MbdProfiler.onKubeJS(controller, System.nanoTime() - start);
+                }
                 Recipe dynamicRecipe = event.getRecipe();
                 if (dynamicRecipe != null && dynamicRecipe.matchRecipe(this.controller) && dynamicRecipe.matchTickRecipe(this.controller))
                     matches.add(dynamicRecipe);
@@ -49,6 +49,8 @@ public class RecipeMap {
     }
 
     public HashMap<String, Recipe> recipes = new HashMap<>();
+    private volatile RecipeIndex recipeIndex;
+    private volatile RecipeIndex fuelRecipeIndex;
 
     public RecipeMap(String name) {
         this.name = name;
@@ -133,6 +135,7 @@ public class RecipeMap {
         inputCapabilities.addAll(recipe.tickInputs.keySet());
         outputCapabilities.addAll(recipe.outputs.keySet());
         outputCapabilities.addAll(recipe.tickOutputs.keySet());
+        recipeIndex = null;
     }
 
     public void addFuelRecipe(Recipe recipe) {
@@ -141,17 +144,40 @@ public class RecipeMap {
         }
         fuelRecipes.add(recipe);
         inputCapabilities.addAll(recipe.inputs.keySet());
+        fuelRecipeIndex = null;
+    }
+
+    /**
+     * Drop the recipe indexes, they will be rebuilt at the next search.
+     * Call it if {@link #recipes} or {@link #fuelRecipes} are modified directly, or if the contents of tags may have changed,
+     * ingredients are indexed by the items of their tags at the time the index is built.
+     */
+    public void invalidateIndex() {
+        recipeIndex = null;
+        fuelRecipeIndex = null;
+    }
+
+    /**
+     * Drop the recipe indexes of all recipe maps, see {@link #invalidateIndex()}.
+     */
+    public static void invalidateIndexes() {
+        for (RecipeMap recipeMap : RECIPE_MAP_REGISTRY.values()) {
+            recipeMap.invalidateIndex();
+        }
+    }
+
+    public void rebuildIndex() {
+        recipeIndex = new RecipeIndex(recipes.values());
+        fuelRecipeIndex = fuelRecipes == null ? null : new RecipeIndex(fuelRecipes);
     }
 
     public List<Recipe> searchRecipe(ICapabilityProxyHolder holder) {
         if (!holder.hasProxies()) return Collections.emptyList();
-        List<Recipe> matches = new ArrayList<>();
-        for (Recipe recipe : recipes.values()) {
-            if (recipe.matchRecipe(holder) && recipe.matchTickRecipe(holder)) {
-                matches.add(recipe);
-            }
+        RecipeIndex index = recipeIndex;
+        if (index == null || index.size() != recipes.size()) {
+            recipeIndex = index = new RecipeIndex(recipes.values());
         }
-        return matches;
+        return index.searchRecipe(holder);
     }
 
     public boolean isFuelRecipeMap() {
@@ -161,13 +187,11 @@ public class RecipeMap {
 
     public List<Recipe> searchFuelRecipe(ICapabilityProxyHolder holder) {
         if (!holder.hasProxies() || !isFuelRecipeMap()) return Collections.emptyList();
-        List<Recipe> matches = new ArrayList<>();
-        for (Recipe recipe : fuelRecipes) {
-            if (recipe.matchRecipe(holder) && recipe.matchTickRecipe(holder)) {
-                matches.add(recipe);
-            }
+        RecipeIndex index = fuelRecipeIndex;
+        if (index == null || index.size() != fuelRecipes.size()) {
+            fuelRecipeIndex = index = new RecipeIndex(fuelRecipes);
         }
-        return matches;
+        return index.searchRecipe(holder);
     }
 
     public Recipe getRecipe(String uid) {
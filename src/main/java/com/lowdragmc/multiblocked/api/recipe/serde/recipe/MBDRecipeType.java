@@ -49,6 +49,9 @@ public class MBDRecipeType {
                 converter.apply();
             }
         }
+        for (RecipeMap recipeMap : RecipeMap.RECIPE_MAP_REGISTRY.values()) {
+            recipeMap.rebuildIndex();
+        }
     }
 
     public static void unloadRecipes() {
@@ -57,6 +60,7 @@ public class MBDRecipeType {
             for (String id : ids) {
                 recipeMap.recipes.remove(id);
             }
+            recipeMap.rebuildIndex();
         });
         addedRecipes.clear();
     }
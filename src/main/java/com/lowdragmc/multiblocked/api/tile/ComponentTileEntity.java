@@ -16,25 +16,27 @@ import com.lowdragmc.multiblocked.api.capability.trait.CapabilityTrait;
 import com.lowdragmc.multiblocked.api.capability.trait.InterfaceUser;
 import com.lowdragmc.multiblocked.api.definition.ComponentDefinition;
 import com.lowdragmc.multiblocked.api.kubejs.events.*;
+import com.lowdragmc.multiblocked.api.profiler.MbdProfiler;
 import com.lowdragmc.multiblocked.api.registry.MbdCapabilities;
 import com.lowdragmc.multiblocked.client.renderer.IMultiblockedRenderer;
+import com.lowdragmc.multiblocked.network.MultiblockedNetworking;
+import com.lowdragmc.multiblocked.network.s2c.SPacketComponentSync;
 import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
 import dev.latvian.mods.kubejs.script.ScriptType;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
 import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.ListTag;
-import net.minecraft.nbt.Tag;
-import net.minecraft.network.Connection;
 import net.minecraft.network.FriendlyByteBuf;
-import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.util.GsonHelper;
 import net.minecraft.world.InteractionHand;
 import net.minecraft.world.InteractionResult;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.entity.BlockEntity;
@@ -162,7 +164,12 @@ public abstract class ComponentTileEntity<T extends ComponentDefinition> extends
     public void update(){
         timer++;
         if (Multiblocked.isKubeJSLoaded() && level != null) {
+            boolean profiling = MbdProfiler.isEnabled();
+            long start = profiling ? System.nanoTime() : 0;
             new UpdateTickEvent(this).post(ScriptType.of(level), UpdateTickEvent.ID, getSubID());
+            if (profiling) {
+                MbdProfiler.onKubeJS(this, System.nanoTime() - start);
+            }
         }
         if (!traits.isEmpty()) {
             for (CapabilityTrait trait : traits.values()) {
@@ -187,7 +194,7 @@ public abstract class ComponentTileEntity<T extends ComponentDefinition> extends
             if (!this.status.equals(status)) {
                 boolean shouldUpdateLight = getDefinition().getStatus(status).getLightEmissive() != getDefinition().getStatus(this.status).getLightEmissive();
                 this.status = status;
-                writeCustomData(1, buffer->buffer.writeUtf(this.status));
+                writeCustomData(1, buffer->buffer.writeUtf(this.status), true);
                 if (shouldUpdateLight && level != null) {
                     level.getChunkSource().getLightEngine().checkBlock(getBlockPos());
                 }
@@ -209,6 +216,19 @@ public abstract class ComponentTileEntity<T extends ComponentDefinition> extends
         return currentRenderer;
     }
 
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        // release client resources of the renderer, e.g. particles
+        if (level != null && level.isClientSide && currentRenderer != null) {
+            currentRenderer.onPostAccess(this);
+            currentRenderer = null;
+        }
+        if (level != null && !level.isClientSide && this instanceof IControllerComponent) {
+            MbdProfiler.onRemoved(this);
+        }
+    }
+
     public int getOutputRedstoneSignal(Direction facing) {
         if (Multiblocked.isKubeJSLoaded() && level != null) {
             OutputRedstoneEvent event = new OutputRedstoneEvent(this, facing);
@@ -235,6 +255,12 @@ public abstract class ComponentTileEntity<T extends ComponentDefinition> extends
         super.setChanged();
     }
 
+    /**
+     * Called by traits when their contents changed. Wake up recipe logics using this component.
+     */
+    public void notifyContentChanged() {
+    }
+
     //************* events *************//
 
     public void onDrops(NonNullList<ItemStack> drops, Player player) {
@@ -420,6 +446,12 @@ public abstract class ComponentTileEntity<T extends ComponentDefinition> extends
         }
     }
 
+    /**
+     * components with pending custom data, server thread only.
+     */
+    private static final Set<ComponentTileEntity<?>> PENDING_SYNCS = new ObjectLinkedOpenHashSet<>();
+    private static final ThreadLocal<FriendlyByteBuf> SYNC_BUFFER = ThreadLocal.withInitial(() -> new FriendlyByteBuf(Unpooled.buffer()));
+
     protected final List<UpdateEntry> updateEntries = new ArrayList<>();
 
     public void writeInitialSyncData(FriendlyByteBuf buf) {
@@ -522,41 +554,89 @@ public abstract class ComponentTileEntity<T extends ComponentDefinition> extends
     }
 
     public void writeCustomData(int discriminator, Consumer<FriendlyByteBuf> dataWriter) {
-        ByteBuf backedBuffer = Unpooled.buffer();
-        dataWriter.accept(new FriendlyByteBuf(backedBuffer));
-        byte[] updateData = Arrays.copyOfRange(backedBuffer.array(), 0, backedBuffer.writerIndex());
-        updateEntries.add(new UpdateEntry(discriminator, updateData));
-        BlockState state = getBlockState();
-        if (level != null) {
+        writeCustomData(discriminator, dataWriter, false);
+    }
+
+    /**
+     * Queue custom data for the clients. All data written within a tick is sent in one packet at the end of the tick.
+     *
+     * @param supersede the data replaces all pending data of the same discriminator, e.g. data of a whole state replaces earlier states and deltas.
+     */
+    public void writeCustomData(int discriminator, Consumer<FriendlyByteBuf> dataWriter, boolean supersede) {
+        if (level == null) return;
+        if (!(level instanceof ServerLevel)) { // nobody to sync with, e.g. dummy worlds of previews
+            BlockState state = getBlockState();
             level.sendBlockUpdated(getBlockPos(), state, state, 3);
+            return;
         }
+        FriendlyByteBuf buffer = SYNC_BUFFER.get();
+        buffer.clear();
+        dataWriter.accept(buffer);
+        byte[] updateData = new byte[buffer.writerIndex()];
+        buffer.getBytes(0, updateData);
+        if (supersede) {
+            updateEntries.removeIf(entry -> entry.discriminator == discriminator);
+        }
+        updateEntries.add(new UpdateEntry(discriminator, updateData));
+        PENDING_SYNCS.add(this);
     }
 
-    @Override
-    public ClientboundBlockEntityDataPacket getUpdatePacket() {
-        CompoundTag updateTag = new CompoundTag();
-        ListTag tagList = new ListTag();
-        for (UpdateEntry updateEntry : updateEntries) {
-            CompoundTag entryTag = new CompoundTag();
-            entryTag.putInt("i", updateEntry.discriminator);
-            entryTag.putByteArray("d", updateEntry.updateData);
-            tagList.add(entryTag);
+    /**
+     * send the pending custom data of all components, called at the end of each server tick.
+     */
+    public static void flushPendingSyncs() {
+        if (PENDING_SYNCS.isEmpty()) return;
+        for (ComponentTileEntity<?> component : PENDING_SYNCS) {
+            component.sendPendingSync();
         }
-        this.updateEntries.clear();
-        updateTag.put("d", tagList);
-        return ClientboundBlockEntityDataPacket.create(this, entity -> updateTag);
+        PENDING_SYNCS.clear();
     }
 
-    @Override
-    public void onDataPacket(Connection net, ClientboundBlockEntityDataPacket pkt) {
-        CompoundTag updateTag = pkt.getTag();
-        ListTag tagList = updateTag.getList("d", Tag.TAG_COMPOUND);
-        for (int i = 0; i < tagList.size(); i++) {
-            CompoundTag entryTag = tagList.getCompound(i);
-            int discriminator = entryTag.getInt("i");
-            byte[] updateData = entryTag.getByteArray("d");
-            ByteBuf backedBuffer = Unpooled.copiedBuffer(updateData);
-            receiveCustomData(discriminator, new FriendlyByteBuf(backedBuffer));
+    /**
+     * drop the pending custom data of components in the level.
+     */
+    public static void clearPendingSyncs(Level level) {
+        PENDING_SYNCS.removeIf(component -> {
+            if (component.level == level) {
+                component.updateEntries.clear();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void sendPendingSync() {
+        if (!updateEntries.isEmpty() && !isRemoved() && level instanceof ServerLevel serverLevel) {
+            List<ServerPlayer> players = serverLevel.getChunkSource().chunkMap.getPlayers(new ChunkPos(getBlockPos()), false);
+            if (!players.isEmpty()) {
+                int size = FriendlyByteBuf.getVarIntSize(updateEntries.size());
+                for (UpdateEntry entry : updateEntries) {
+                    size += FriendlyByteBuf.getVarIntSize(entry.discriminator) + FriendlyByteBuf.getVarIntSize(entry.updateData.length) + entry.updateData.length;
+                }
+                byte[] payload = new byte[size];
+                FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.wrappedBuffer(payload).writerIndex(0));
+                buffer.writeVarInt(updateEntries.size());
+                for (UpdateEntry entry : updateEntries) {
+                    buffer.writeVarInt(entry.discriminator);
+                    buffer.writeByteArray(entry.updateData);
+                }
+                SPacketComponentSync packet = new SPacketComponentSync(getBlockPos(), payload);
+                for (ServerPlayer player : players) {
+                    MultiblockedNetworking.sendToPlayer(packet, player);
+                }
+            }
+        }
+        updateEntries.clear();
+    }
+
+    /**
+     * receive custom data sent by {@link #flushPendingSyncs()}.
+     */
+    public void receiveSyncPayload(FriendlyByteBuf buf) {
+        for (int i = buf.readVarInt(); i > 0; i--) {
+            int discriminator = buf.readVarInt();
+            int length = buf.readVarInt();
+            receiveCustomData(discriminator, new FriendlyByteBuf(buf.readSlice(length)));
         }
     }
 
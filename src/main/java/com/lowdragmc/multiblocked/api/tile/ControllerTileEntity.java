@@ -18,6 +18,8 @@ import com.lowdragmc.multiblocked.api.gui.controller.structure.StructurePageWidg
 import com.lowdragmc.multiblocked.api.kubejs.events.*;
 import com.lowdragmc.multiblocked.api.pattern.BlockPattern;
 import com.lowdragmc.multiblocked.api.pattern.MultiblockState;
+import com.lowdragmc.multiblocked.api.pattern.util.PatternMatchContext;
+import com.lowdragmc.multiblocked.api.profiler.MbdProfiler;
 import com.lowdragmc.multiblocked.api.recipe.RecipeLogic;
 import com.lowdragmc.multiblocked.api.registry.MbdCapabilities;
 import com.lowdragmc.multiblocked.api.tile.part.IPartComponent;
@@ -25,6 +27,8 @@ import com.lowdragmc.multiblocked.client.renderer.MultiblockPreviewRenderer;
 import com.lowdragmc.multiblocked.persistence.IAsyncThreadUpdate;
 import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
 import dev.latvian.mods.kubejs.script.ScriptType;
+import it.unimi.dsi.fastutil.longs.Long2ObjectArrayMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
@@ -40,6 +44,7 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.InteractionResult;
 import net.minecraft.util.Tuple;
@@ -67,10 +72,18 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
     protected Map<Long, Set<String>> slotsMap;
     private boolean needReLoadSettings;
     protected LongOpenHashSet parts;
+    // match context persisted with the settings, used by restoreFromCache
+    private Map<Long, Set<String>> savedSlots;
+    private LongOpenHashSet savedParts;
+    private LongOpenHashSet savedRenderMask;
     protected RecipeLogic recipeLogic;
     protected AABB renderBox;
     protected BlockState oldState;
     protected CompoundTag oldNbt;
+    // last failing quick probe per facing, see BlockPattern#quickReject
+    private final int[] probeMemo = new int[Direction.values().length];
+    // server: last state sent to the tracking players, client: last received state
+    private StructureSyncData syncData;
 
     public ControllerTileEntity(ControllerDefinition definition, BlockPos pos, BlockState state) {
         super(definition, pos, state);
@@ -95,6 +108,13 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
         return new RecipeLogic(this);
     }
 
+    @Override
+    public void notifyContentChanged() {
+        if (recipeLogic != null) {
+            recipeLogic.wakeUp();
+        }
+    }
+
     @Override
     public void update() {
         super.update();
@@ -113,7 +133,12 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
             recipeLogic.update();
         }
         if (Multiblocked.isKubeJSLoaded() && level != null) {
+            boolean profiling = MbdProfiler.isEnabled();
+            long start = profiling ? System.nanoTime() : 0;
             new UpdateFormedEvent(this).post(ScriptType.of(level), UpdateFormedEvent.ID, getSubID());
+            if (profiling) {
+                MbdProfiler.onKubeJS(this, System.nanoTime() - start);
+            }
         }
         if (getTimer() % 40 == 0) {
             if (needReLoadSettings && settings != null) {
@@ -141,7 +166,7 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
             setStatus("idle");
         }
         // init capabilities
-        Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> capabilityMap = state.getMatchContext().get("capabilities");
+        Map<Long, EnumMap<IO, Set<MultiblockCapability<?>>>> capabilityMap = state.getMatchContext().getCapabilities();
         slotsMap = state.getMatchContext().get("slots");
 
         if (settings != null) {
@@ -167,7 +192,15 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
         }
 
         // init parts
-        parts = state.getMatchContext().get("parts");
+        LongOpenHashSet lastParts = parts;
+        parts = state.getMatchContext().getParts();
+        if (lastParts != null) { // parts of a restored structure which aren't detected anymore
+            for (long pos : lastParts) {
+                if ((parts == null || !parts.contains(pos)) && level.getBlockEntity(BlockPos.of(pos)) instanceof IPartComponent part) {
+                    part.removedFromController(this);
+                }
+            }
+        }
         if (parts != null) {
             for (Long pos : parts) {
                 BlockEntity tileEntity = level.getBlockEntity(BlockPos.of(pos));
@@ -177,13 +210,52 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
             }
         }
 
-        writeCustomData(-1, this::writeState);
+        syncState();
         if (Multiblocked.isKubeJSLoaded() && level != null) {
             new StructureFormedEvent(this).post(ScriptType.of(level), StructureFormedEvent.ID, getSubID());
         }
         markAsDirty();
     }
 
+    @Override
+    public boolean restoreFromCache() {
+        if (settings == null || state == null || state.cache == null || state.cache.isEmpty()) return false;
+        // capabilities and parts are looked up below, which must not load chunks of the structure.
+        if (!state.areChunksLoaded()) return false;
+        state.restore();
+        PatternMatchContext context = state.getMatchContext();
+        if (savedSlots != null) {
+            context.set("slots", savedSlots);
+        }
+        if (savedRenderMask != null) {
+            context.set("renderMask", savedRenderMask);
+        }
+        if (savedParts != null) {
+            context.getOrCreateParts().addAll(savedParts);
+        }
+        savedSlots = null;
+        savedParts = null;
+        savedRenderMask = null;
+        // proxies from the settings only, onStructureFormed runs once the pattern is checked, see MultiblockState#revalidate
+        if (recipeLogic == null) {
+            recipeLogic = createRecipeLogic();
+        }
+        if (status.equals("unformed")) {
+            setStatus("idle");
+        }
+        slotsMap = context.get("slots");
+        loadCapabilitiesFromSettings();
+        parts = context.getParts();
+        if (parts != null) {
+            for (long pos : parts) {
+                if (level.getBlockEntity(BlockPos.of(pos)) instanceof IPartComponent part) {
+                    part.addedToController(this);
+                }
+            }
+        }
+        return true;
+    }
+
     public void onStructureInvalid() {
         if (recipeLogic != null) {
             recipeLogic.inValid();
@@ -202,7 +274,7 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
         }
         capabilities = null;
 
-        writeCustomData(-1, this::writeState);
+        syncState();
         if (Multiblocked.isKubeJSLoaded() && level != null) {
             new StructureInvalidEvent(this).post(ScriptType.of(level), StructureInvalidEvent.ID, getSubID());
         }
@@ -259,83 +331,92 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
     protected void writeState(FriendlyByteBuf buffer) {
         buffer.writeBoolean(isFormed());
         if (isFormed()) {
-            LongSet disabled = state.getMatchContext().getOrDefault("renderMask", LongSets.EMPTY_SET);
-            buffer.writeVarInt(disabled.size());
-            for (long blockPos : disabled) {
-                buffer.writeLong(blockPos);
-            }
-            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
-            for (BlockPos pos : state.getCache()) {
-                minX = Math.min(minX, pos.getX());
-                minY = Math.min(minY, pos.getY());
-                minZ = Math.min(minZ, pos.getZ());
-
-                maxX = Math.max(maxX, pos.getX());
-                maxY = Math.max(maxY, pos.getY());
-                maxZ = Math.max(maxZ, pos.getZ());
-            }
-            buffer.writeBlockPos(new BlockPos(minX, minY, minZ));
-            buffer.writeBlockPos(new BlockPos(maxX + 1, maxY + 1, maxZ + 1));
-
-            var tag = new CompoundTag();
-
-            // ser capabilities
-            var list = saveCapabilities();
-            if (list != null && state != null) {
-                tag.put("capabilities", list);
-                //ser slotsMap
-                Map<Long, Set<String>> slotsMap = state.getMatchContext().get("slots");
-                if (slotsMap != null) {
-                    var slotList = new ListTag();
-                    slotsMap.forEach((l, set) -> {
-                        var slot = new CompoundTag();
-                        ListTag names = new ListTag();
-                        set.forEach(n -> names.add(StringTag.valueOf(n)));
-                        slot.put("names", names);
-                        slot.putLong("pos", l);
-                        slotList.add(slot);
-                    });
-                    tag.put("slotList", slotList);
+            buffer.writeBoolean(false);
+            captureSyncData().write(null, buffer, worldPosition);
+        }
+    }
+
+    /**
+     * sync the structure state to the tracking players, only the delta against the last synced state if both are formed.
+     */
+    protected void syncState() {
+        StructureSyncData last = syncData;
+        syncData = isFormed() ? captureSyncData() : null;
+        if (last != null && syncData != null) {
+            StructureSyncData data = syncData;
+            writeCustomData(-1, buffer -> {
+                buffer.writeBoolean(true);
+                buffer.writeBoolean(true);
+                data.write(last, buffer, worldPosition);
+            }, false);
+        } else {
+            writeCustomData(-1, this::writeState, true);
+        }
+    }
+
+    protected StructureSyncData captureSyncData() {
+        LongSet disabled = state.getMatchContext().getOrDefault("renderMask", LongSets.EMPTY_SET);
+        BoundingBox bounds = state.getBounds();
+        Long2ObjectOpenHashMap<Set<StructureSyncData.CapabilityEntry>> capabilityEntries = new Long2ObjectOpenHashMap<>();
+        Long2ObjectOpenHashMap<Set<String>> slots = new Long2ObjectOpenHashMap<>();
+        if (capabilities != null) {
+            for (Table.Cell<IO, MultiblockCapability<?>, Long2ObjectOpenHashMap<CapabilityProxy<?>>> cell : capabilities.cellSet()) {
+                IO io = cell.getRowKey();
+                MultiblockCapability<?> cap = cell.getColumnKey();
+                Long2ObjectOpenHashMap<CapabilityProxy<?>> value = cell.getValue();
+                if (io != null && cap != null && value != null) {
+                    for (Long2ObjectMap.Entry<CapabilityProxy<?>> entry : value.long2ObjectEntrySet()) {
+                        capabilityEntries.computeIfAbsent(entry.getLongKey(), p -> new HashSet<>())
+                                .add(new StructureSyncData.CapabilityEntry(cap.name, io, entry.getValue().facing));
+                    }
                 }
             }
-            buffer.writeNbt(tag);
+            Map<Long, Set<String>> slotsMap = state.getMatchContext().get("slots");
+            if (slotsMap != null) {
+                slotsMap.forEach((pos, names) -> slots.put((long) pos, new HashSet<>(names)));
+            }
         }
+        return new StructureSyncData(new LongOpenHashSet(disabled),
+                new BlockPos(bounds.minX(), bounds.minY(), bounds.minZ()),
+                new BlockPos(bounds.maxX() + 1, bounds.maxY() + 1, bounds.maxZ() + 1),
+                capabilityEntries, slots);
     }
 
     protected void readState(FriendlyByteBuf buffer) {
         if (buffer.readBoolean()) {
+            StructureSyncData last = syncData;
+            StructureSyncData base = buffer.readBoolean() && last != null ? last : StructureSyncData.EMPTY;
+            StructureSyncData data = base.read(buffer, worldPosition);
+            syncData = data;
             state = new MultiblockState(level, worldPosition);
             state.setError(null);
-            int size = buffer.readVarInt();
-            if (size > 0) {
-                ImmutableList.Builder<BlockPos> listBuilder = new ImmutableList.Builder<>();
-                for (int i = size; i > 0; i--) {
-                    listBuilder.add(BlockPos.of(buffer.readLong()));
+            if (last == null || !last.renderMask.equals(data.renderMask)) {
+                if (last != null && !last.renderMask.isEmpty()) {
+                    MultiblockWorldSavedData.removeDisableModel(worldPosition);
                 }
-                MultiblockWorldSavedData.addDisableModel(state.controllerPos, listBuilder.build());
-            }
-            renderBox = new AABB(buffer.readBlockPos(), buffer.readBlockPos());
-            var tag = buffer.readNbt();
-            if (tag != null && tag.contains("capabilities")) {
-                var tagList = tag.getList("capabilities", Tag.TAG_COMPOUND);
-                loadCapabilities(tagList);
-
-                slotsMap = new HashMap<>();
-                var slotList = tag.getList("slotList", Tag.TAG_COMPOUND);
-                for (Tag t : slotList) {
-                    var slot = (CompoundTag)t;
-                    var pos = slot.getLong("pos");
-                    ListTag names = slot.getList("names", Tag.TAG_STRING);
-                    for (Tag name : names) {
-                        slotsMap.computeIfAbsent(pos, p -> new HashSet<>()).add(name.getAsString());
+                if (!data.renderMask.isEmpty()) {
+                    ImmutableList.Builder<BlockPos> listBuilder = new ImmutableList.Builder<>();
+                    for (long blockPos : data.renderMask) {
+                        listBuilder.add(BlockPos.of(blockPos));
                     }
+                    MultiblockWorldSavedData.addDisableModel(worldPosition, listBuilder.build());
                 }
             }
+            renderBox = new AABB(data.min, data.max);
+            settings = new HashMap<>();
+            for (Long2ObjectMap.Entry<Set<StructureSyncData.CapabilityEntry>> entry : data.capabilities.long2ObjectEntrySet()) {
+                for (StructureSyncData.CapabilityEntry capability : entry.getValue()) {
+                    settings.computeIfAbsent(entry.getLongKey(), l -> new HashMap<>())
+                            .put(MbdCapabilities.get(capability.capability()), new Tuple<>(capability.io(), capability.facing()));
+                }
+            }
+            slotsMap = new HashMap<>(data.slots);
             capabilities = null;
         } else {
             if (state != null) {
                 MultiblockWorldSavedData.removeDisableModel(state.controllerPos);
             }
+            syncData = null;
             settings = null;
             state = null;
             renderBox = null;
@@ -357,6 +438,7 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
         var list = saveCapabilities();
         if (list != null) {
             compound.put("capabilities", list);
+            saveMatchContext(compound);
         }
         if (getDefinition().noNeedController && oldState != null) {
             compound.put("oldState", NbtUtils.writeBlockState(oldState));
@@ -387,6 +469,7 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
         if (compound.contains("capabilities")) {
             ListTag tagList = compound.getList("capabilities", Tag.TAG_COMPOUND);
             loadCapabilities(tagList);
+            loadMatchContext(compound);
         }
         if (getDefinition().noNeedController && compound.contains("oldState")) {
             this.oldState = NbtUtils.readBlockState(compound.getCompound("oldState"));
@@ -420,6 +503,47 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
         return null;
     }
 
+    private void saveMatchContext(CompoundTag compound) {
+        if (slotsMap != null) {
+            ListTag slotList = new ListTag();
+            slotsMap.forEach((pos, names) -> {
+                CompoundTag tag = new CompoundTag();
+                tag.putLong("pos", pos);
+                ListTag nameList = new ListTag();
+                for (String name : names) {
+                    nameList.add(StringTag.valueOf(name));
+                }
+                tag.put("names", nameList);
+                slotList.add(tag);
+            });
+            compound.put("slots", slotList);
+        }
+        if (parts != null) {
+            compound.putLongArray("parts", parts.toLongArray());
+        }
+        LongSet renderMask = state == null ? null : state.getMatchContext().get("renderMask");
+        if (renderMask != null) {
+            compound.putLongArray("renderMask", renderMask.toLongArray());
+        }
+    }
+
+    private void loadMatchContext(CompoundTag compound) {
+        savedSlots = null;
+        if (compound.contains("slots")) {
+            savedSlots = new Long2ObjectArrayMap<>();
+            for (Tag base : compound.getList("slots", Tag.TAG_COMPOUND)) {
+                CompoundTag tag = (CompoundTag) base;
+                Set<String> names = new HashSet<>();
+                for (Tag name : tag.getList("names", Tag.TAG_STRING)) {
+                    names.add(name.getAsString());
+                }
+                savedSlots.put(tag.getLong("pos"), names);
+            }
+        }
+        savedParts = compound.contains("parts") ? new LongOpenHashSet(compound.getLongArray("parts")) : null;
+        savedRenderMask = compound.contains("renderMask") ? new LongOpenHashSet(compound.getLongArray("renderMask")) : null;
+    }
+
     private void loadCapabilities(ListTag tagList) {
         settings = new HashMap<>();
         for (Tag base : tagList) {
@@ -534,7 +658,8 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
     public void asyncThreadLogic(long periodID) {
         if (!isFormed() && getDefinition().getCatalyst() == null && (getOffset() + periodID) % 4 == 0) {
             BlockPattern pattern = getPattern();
-            if (pattern != null && pattern.checkPatternAt(new MultiblockState(level, worldPosition), false)) {
+            MultiblockState worldState = pattern == null ? null : new MultiblockState(level, worldPosition);
+            if (worldState != null && !pattern.quickReject(worldState, probeMemo) && pattern.checkPatternAt(worldState, false)) {
                 ServerLifecycleHooks.getCurrentServer().execute(() -> {
                     if (state == null) state = new MultiblockState(level, worldPosition);
                     if (checkPattern()) { // formed
@@ -547,15 +672,32 @@ public class ControllerTileEntity extends ComponentTileEntity<ControllerDefiniti
         try {
             if (hasProxies()) {
                 // should i add locks for proxies?
-                for (Long2ObjectOpenHashMap<CapabilityProxy<?>> map : getCapabilitiesProxy().values()) {
-                    if (map != null) {
-                        for (CapabilityProxy<?> proxy : map.values()) {
-                            if (proxy != null) {
-                                proxy.updateChangedState(periodID);
+                RecipeLogic logic = recipeLogic;
+                List<CapabilityProxy<?>> polledProxies = logic == null ? null : logic.getPolledProxies();
+                boolean changed = false;
+                if (polledProxies != null) { // proxies notifying changes by themselves don't need snapshots
+                    for (CapabilityProxy<?> proxy : polledProxies) {
+                        changed |= proxy.updateChangedState(periodID);
+                    }
+                } else {
+                    for (Long2ObjectOpenHashMap<CapabilityProxy<?>> map : getCapabilitiesProxy().values()) {
+                        if (map != null) {
+                            for (CapabilityProxy<?> proxy : map.values()) {
+                                if (proxy != null) {
+                                    changed |= proxy.updateChangedState(periodID);
+                                }
                             }
                         }
                     }
                 }
+                // controllers not updated every tick have to be woken on the server thread to search recipes.
+                if (changed && logic != null && getTickInterval() != 1) {
+                    ServerLifecycleHooks.getCurrentServer().execute(() -> {
+                        if (recipeLogic == logic && !isRemoved()) {
+                            logic.wakeUp();
+                        }
+                    });
+                }
             }
         } catch (Exception e) {
             Multiblocked.LOGGER.error("something run while checking proxy changes");
@@ -4,6 +4,7 @@ import com.lowdragmc.lowdraglib.LDLMod;
 import com.lowdragmc.lowdraglib.client.renderer.IRenderer;
 import com.lowdragmc.multiblocked.Multiblocked;
 import com.lowdragmc.multiblocked.api.definition.ComponentDefinition;
+import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
 import dev.latvian.mods.kubejs.script.ScriptType;
 import net.minecraft.core.Direction;
 import net.minecraft.core.NonNullList;
@@ -115,6 +116,14 @@ public interface IComponent {
         return level != null && !level.isClientSide && (getDefinition().needUpdateTick() );
     }
 
+    /**
+     * Server ticks between updates of a loading component, 0 - only updated when woken, see {@link MultiblockWorldSavedData#wakeUp(IComponent)}.
+     * It is checked again after each update.
+     */
+    default int getTickInterval() {
+        return getDefinition().tickInterval;
+    }
+
     default void markAsDirty() {
         self().setChanged();
     }
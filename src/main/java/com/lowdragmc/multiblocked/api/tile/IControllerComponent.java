@@ -49,6 +49,14 @@ public interface IControllerComponent extends IComponent, ICapabilityProxyHolder
 
     void onStructureFormed();
 
+    /**
+     * Form the structure from the persisted cache and settings without checking the pattern, called when its chunk is loaded.
+     * @return whether it is restored. the pattern will be checked later anyway.
+     */
+    default boolean restoreFromCache() {
+        return false;
+    }
+
     void onStructureInvalid();
 
     MultiblockState getMultiblockState();
@@ -99,6 +107,22 @@ public interface IControllerComponent extends IComponent, ICapabilityProxyHolder
         return null;
     }
 
+    @Override
+    default int getTickInterval() {
+        // recipe progress is counted in updates
+        RecipeLogic recipeLogic = getRecipeLogic();
+        int interval = IComponent.super.getTickInterval();
+        if (recipeLogic != null && isFormed()) {
+            if (recipeLogic.isBusy()) {
+                return 1;
+            }
+            if (interval == 0 && recipeLogic.needPolling()) {
+                return RecipeLogic.IDLE_POLL_INTERVAL;
+            }
+        }
+        return interval;
+    }
+
     default BlockPattern getPattern() {
         return getDefinition().getBasePattern();
     }
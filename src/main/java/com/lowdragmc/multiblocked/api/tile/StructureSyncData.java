@@ -0,0 +1,194 @@
+package com.lowdragmc.multiblocked.api.tile;
+
+import com.lowdragmc.multiblocked.api.capability.IO;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.network.FriendlyByteBuf;
+
+import javax.annotation.Nullable;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Structure state of a controller synced to the clients, see {@link ControllerTileEntity#writeState(FriendlyByteBuf)}.
+ * Instances are never modified once created.
+ * <br>
+ * The state is written as a delta against a base state, the full state is a delta against {@link #EMPTY}.
+ * Positions are relative to the controller, capability and slot names are interned in a string table per write.
+ * A delta carries the changed positions with their whole values, so applying it to a state which already contains the changes is harmless,
+ * e.g. for a player which got the full state by the chunk data in the same tick.
+ */
+public class StructureSyncData {
+    public static final StructureSyncData EMPTY = new StructureSyncData(new LongOpenHashSet(), BlockPos.ZERO, BlockPos.ZERO, new Long2ObjectOpenHashMap<>(), new Long2ObjectOpenHashMap<>());
+
+    public record CapabilityEntry(String capability, IO io, Direction facing) { }
+
+    public final LongSet renderMask;
+    public final BlockPos min;
+    public final BlockPos max;
+    public final Long2ObjectMap<Set<CapabilityEntry>> capabilities;
+    public final Long2ObjectMap<Set<String>> slots;
+
+    public StructureSyncData(LongSet renderMask, BlockPos min, BlockPos max, Long2ObjectMap<Set<CapabilityEntry>> capabilities, Long2ObjectMap<Set<String>> slots) {
+        this.renderMask = renderMask;
+        this.min = min;
+        this.max = max;
+        this.capabilities = capabilities;
+        this.slots = slots;
+    }
+
+    /**
+     * write this state as a delta against the base state, null for the full state.
+     */
+    public void write(@Nullable StructureSyncData base, FriendlyByteBuf buf, BlockPos origin) {
+        if (base == null) base = EMPTY;
+        writeDifference(buf, base.renderMask, renderMask, origin);
+        writeDifference(buf, renderMask, base.renderMask, origin);
+        writePos(buf, min.asLong(), origin);
+        writePos(buf, max.asLong(), origin);
+
+        Long2ObjectMap<Set<CapabilityEntry>> changedCapabilities = getChanged(base.capabilities, capabilities);
+        Long2ObjectMap<Set<String>> changedSlots = getChanged(base.slots, slots);
+        Object2IntLinkedOpenHashMap<String> names = new Object2IntLinkedOpenHashMap<>();
+        for (Set<CapabilityEntry> entries : changedCapabilities.values()) {
+            for (CapabilityEntry entry : entries) {
+                names.putIfAbsent(entry.capability, names.size());
+            }
+        }
+        for (Set<String> slotNames : changedSlots.values()) {
+            for (String name : slotNames) {
+                names.putIfAbsent(name, names.size());
+            }
+        }
+        buf.writeVarInt(names.size());
+        for (String name : names.keySet()) {
+            buf.writeUtf(name);
+        }
+
+        writeDifference(buf, base.capabilities.keySet(), capabilities.keySet(), origin);
+        buf.writeVarInt(changedCapabilities.size());
+        for (Long2ObjectMap.Entry<Set<CapabilityEntry>> entry : changedCapabilities.long2ObjectEntrySet()) {
+            writePos(buf, entry.getLongKey(), origin);
+            buf.writeVarInt(entry.getValue().size());
+            for (CapabilityEntry capability : entry.getValue()) {
+                buf.writeVarInt(names.getInt(capability.capability));
+                buf.writeByte(capability.io.ordinal());
+                buf.writeByte(capability.facing.get3DDataValue());
+            }
+        }
+
+        writeDifference(buf, base.slots.keySet(), slots.keySet(), origin);
+        buf.writeVarInt(changedSlots.size());
+        for (Long2ObjectMap.Entry<Set<String>> entry : changedSlots.long2ObjectEntrySet()) {
+            writePos(buf, entry.getLongKey(), origin);
+            buf.writeVarInt(entry.getValue().size());
+            for (String name : entry.getValue()) {
+                buf.writeVarInt(names.getInt(name));
+            }
+        }
+    }
+
+    /**
+     * read a state written against this state by {@link #write}.
+     */
+    public StructureSyncData read(FriendlyByteBuf buf, BlockPos origin) {
+        LongSet renderMask = new LongOpenHashSet(this.renderMask);
+        for (int i = buf.readVarInt(); i > 0; i--) {
+            renderMask.remove(readPos(buf, origin));
+        }
+        for (int i = buf.readVarInt(); i > 0; i--) {
+            renderMask.add(readPos(buf, origin));
+        }
+        BlockPos min = BlockPos.of(readPos(buf, origin));
+        BlockPos max = BlockPos.of(readPos(buf, origin));
+
+        String[] names = new String[buf.readVarInt()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = buf.readUtf();
+        }
+
+        Long2ObjectMap<Set<CapabilityEntry>> capabilities = new Long2ObjectOpenHashMap<>(this.capabilities);
+        for (int i = buf.readVarInt(); i > 0; i--) {
+            capabilities.remove(readPos(buf, origin));
+        }
+        for (int i = buf.readVarInt(); i > 0; i--) {
+            long pos = readPos(buf, origin);
+            Set<CapabilityEntry> entries = new HashSet<>();
+            for (int j = buf.readVarInt(); j > 0; j--) {
+                entries.add(new CapabilityEntry(names[buf.readVarInt()], IO.VALUES[buf.readByte()], Direction.from3DDataValue(buf.readByte())));
+            }
+            capabilities.put(pos, entries);
+        }
+
+        Long2ObjectMap<Set<String>> slots = new Long2ObjectOpenHashMap<>(this.slots);
+        for (int i = buf.readVarInt(); i > 0; i--) {
+            slots.remove(readPos(buf, origin));
+        }
+        for (int i = buf.readVarInt(); i > 0; i--) {
+            long pos = readPos(buf, origin);
+            Set<String> slotNames = new HashSet<>();
+            for (int j = buf.readVarInt(); j > 0; j--) {
+                slotNames.add(names[buf.readVarInt()]);
+            }
+            slots.put(pos, slotNames);
+        }
+        return new StructureSyncData(renderMask, min, max, capabilities, slots);
+    }
+
+    private static <T> Long2ObjectMap<T> getChanged(Long2ObjectMap<T> base, Long2ObjectMap<T> current) {
+        Long2ObjectMap<T> changed = new Long2ObjectOpenHashMap<>();
+        for (Long2ObjectMap.Entry<T> entry : current.long2ObjectEntrySet()) {
+            if (!Objects.equals(base.get(entry.getLongKey()), entry.getValue())) {
+                changed.put(entry.getLongKey(), entry.getValue());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * write positions of the set which aren't contained by the other set.
+     */
+    private static void writeDifference(FriendlyByteBuf buf, LongSet set, LongSet other, BlockPos origin) {
+        int count = 0;
+        for (long pos : set) {
+            if (!other.contains(pos)) count++;
+        }
+        buf.writeVarInt(count);
+        for (long pos : set) {
+            if (!other.contains(pos)) {
+                writePos(buf, pos, origin);
+            }
+        }
+    }
+
+    private static void writePos(FriendlyByteBuf buf, long pos, BlockPos origin) {
+        writeSigned(buf, BlockPos.getX(pos) - origin.getX());
+        writeSigned(buf, BlockPos.getY(pos) - origin.getY());
+        writeSigned(buf, BlockPos.getZ(pos) - origin.getZ());
+    }
+
+    private static long readPos(FriendlyByteBuf buf, BlockPos origin) {
+        int x = origin.getX() + readSigned(buf);
+        int y = origin.getY() + readSigned(buf);
+        int z = origin.getZ() + readSigned(buf);
+        return BlockPos.asLong(x, y, z);
+    }
+
+    /**
+     * zigzag, small negative offsets stay small varints.
+     */
+    private static void writeSigned(FriendlyByteBuf buf, int value) {
+        buf.writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private static int readSigned(FriendlyByteBuf buf) {
+        int value = buf.readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -5,6 +5,7 @@ import com.lowdragmc.multiblocked.api.definition.PartDefinition;
 import com.lowdragmc.multiblocked.api.kubejs.events.PartAddedEvent;
 import com.lowdragmc.multiblocked.api.kubejs.events.PartRemovedEvent;
 import com.lowdragmc.multiblocked.api.pattern.MultiblockState;
+import com.lowdragmc.multiblocked.api.recipe.RecipeLogic;
 import com.lowdragmc.multiblocked.api.tile.ComponentTileEntity;
 import com.lowdragmc.multiblocked.api.tile.ControllerTileEntity;
 import com.lowdragmc.multiblocked.api.tile.IControllerComponent;
@@ -15,7 +16,6 @@ import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.world.level.ChunkPos;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
@@ -52,9 +52,22 @@ public abstract class PartTileEntity<T extends PartDefinition> extends Component
         return result;
     }
 
+    @Override
+    public void notifyContentChanged() {
+        if (level == null || isRemote()) return;
+        for (BlockPos blockPos : controllerPos) {
+            if (level.isLoaded(blockPos) && level.getBlockEntity(blockPos) instanceof IControllerComponent controller) {
+                RecipeLogic recipeLogic = controller.getRecipeLogic();
+                if (recipeLogic != null) {
+                    recipeLogic.wakeUp();
+                }
+            }
+        }
+    }
+
     public void addedToController(@Nonnull IControllerComponent controller){
         if (controllerPos.add(controller.self().getBlockPos())) {
-            writeCustomData(-1, this::writeControllersToBuffer);
+            writeCustomData(-1, this::writeControllersToBuffer, true);
             if (Multiblocked.isKubeJSLoaded() && controller instanceof ControllerTileEntity controllerTile && level != null) {
                 new PartAddedEvent(controllerTile).post(ScriptType.of(level), PartAddedEvent.ID, getSubID());
             }
@@ -64,7 +77,7 @@ public abstract class PartTileEntity<T extends PartDefinition> extends Component
 
     public void removedFromController(@Nonnull IControllerComponent controller){
         if (controllerPos.remove(controller.self().getBlockPos())) {
-            writeCustomData(-1, this::writeControllersToBuffer);
+            writeCustomData(-1, this::writeControllersToBuffer, true);
             if (Multiblocked.isKubeJSLoaded() && controller instanceof ControllerTileEntity controllerTile && level != null) {
                 new PartRemovedEvent(controllerTile).post(ScriptType.of(level), PartRemovedEvent.ID, getSubID());
             }
@@ -98,8 +111,9 @@ public abstract class PartTileEntity<T extends PartDefinition> extends Component
     @Override
     public void load(@Nonnull CompoundTag compound) {
         super.load(compound);
-        for (MultiblockState multiblockState : MultiblockWorldSavedData.getOrCreate(level).getControllerInChunk(new ChunkPos(getBlockPos()))) {
-            if(multiblockState.isPosInCache(getBlockPos())) {
+        MultiblockState[] structures = MultiblockWorldSavedData.getOrCreate(level).getStructuresAt(getBlockPos());
+        if (structures != null) {
+            for (MultiblockState multiblockState : structures) {
                 controllerPos.add(multiblockState.controllerPos);
             }
         }
@@ -34,7 +34,6 @@ import net.minecraftforge.fml.common.Mod;
 import org.lwjgl.opengl.GL11;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @OnlyIn(Dist.CLIENT)
@@ -93,8 +92,8 @@ public class MultiblockPreviewRenderer {
         }
         resetMultiblockRender();
         mbpEndTime = System.currentTimeMillis() + durTimeMillis;
-        List<MultiblockShapeInfo> shapes = controller.getDefinition().getDesigns();
-        if (!shapes.isEmpty()) renderControllerInList(controller, shapes.get(0), layer);
+        MultiblockShapeInfo shape = controller.getDefinition().getFirstDesign();
+        if (shape != null) renderControllerInList(controller, shape, layer);
     }
 
     public static void resetMultiblockRender() {
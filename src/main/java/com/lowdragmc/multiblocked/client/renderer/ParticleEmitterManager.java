@@ -0,0 +1,155 @@
+package com.lowdragmc.multiblocked.client.renderer;
+
+import com.lowdragmc.lowdraglib.client.particle.LParticle;
+import com.lowdragmc.multiblocked.MbdConfig;
+import com.lowdragmc.multiblocked.Multiblocked;
+import com.lowdragmc.multiblocked.api.tile.IComponent;
+import com.lowdragmc.multiblocked.client.renderer.impl.ParticleRenderer;
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Owns the particles of components in the client level rendered by a {@link ParticleRenderer}.
+ * Components of other levels, e.g. scenes of a gui, own their particles, so nothing here keeps them or their scenes alive.
+ * <br>
+ * Renderers may be accessed by chunk builder threads, attaching and detaching are queued and handled on the client tick.
+ * Emitters out of the view distance or of removed components have no particle, particles are spawned grouped by their renderer,
+ * so particles of the same texture or shader are drawn one after another.
+ */
+@OnlyIn(Dist.CLIENT)
+@Mod.EventBusSubscriber(modid = Multiblocked.MODID, bus = Mod.EventBusSubscriber.Bus.FORGE, value = Dist.CLIENT)
+public class ParticleEmitterManager {
+    /**
+     * client ticks between checks of the view distance and the removal of components.
+     */
+    public static final int CULL_INTERVAL = 10;
+
+    private record Operation(IComponent component, @Nullable ParticleRenderer renderer) { }
+
+    private static class Emitter {
+        private final IComponent component;
+        private LParticle particle;
+
+        private Emitter(IComponent component) {
+            this.component = component;
+        }
+    }
+
+    private static final Queue<Operation> OPERATIONS = new ConcurrentLinkedQueue<>();
+    // renderer -> component -> emitter, client thread only
+    private static final Map<ParticleRenderer, Map<IComponent, Emitter>> EMITTERS = new LinkedHashMap<>();
+    private static final Map<IComponent, ParticleRenderer> RENDERERS = new IdentityHashMap<>();
+    private static int ticks;
+
+    /**
+     * whether the particle of the component is owned by the manager, only components of the client level are.
+     */
+    public static boolean isManaged(IComponent component) {
+        Level level = component.self().getLevel();
+        return level != null && level == Minecraft.getInstance().level;
+    }
+
+    public static void attach(IComponent component, ParticleRenderer renderer) {
+        OPERATIONS.add(new Operation(component, renderer));
+    }
+
+    public static void detach(IComponent component) {
+        OPERATIONS.add(new Operation(component, null));
+    }
+
+    @SubscribeEvent
+    public static void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+        boolean changed = false;
+        Operation operation;
+        while ((operation = OPERATIONS.poll()) != null) {
+            remove(operation.component);
+            if (operation.renderer != null) {
+                EMITTERS.computeIfAbsent(operation.renderer, r -> new IdentityHashMap<>()).put(operation.component, new Emitter(operation.component));
+                RENDERERS.put(operation.component, operation.renderer);
+                changed = true;
+            }
+        }
+        if (changed || ++ticks >= CULL_INTERVAL) {
+            ticks = 0;
+            update();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onWorldUnload(WorldEvent.Unload event) {
+        if (Minecraft.getInstance().level == event.getWorld()) {
+            OPERATIONS.clear();
+            EMITTERS.clear();
+            RENDERERS.clear();
+        }
+    }
+
+    private static void remove(IComponent component) {
+        ParticleRenderer renderer = RENDERERS.remove(component);
+        if (renderer != null) {
+            Map<IComponent, Emitter> emitters = EMITTERS.get(renderer);
+            Emitter emitter = emitters.remove(component);
+            if (emitters.isEmpty()) {
+                EMITTERS.remove(renderer);
+            }
+            if (emitter.particle != null) {
+                emitter.particle.remove();
+            }
+        }
+    }
+
+    /**
+     * drop emitters of removed components, spawn or remove particles entering or leaving the view distance.
+     */
+    private static void update() {
+        Minecraft mc = Minecraft.getInstance();
+        Vec3 camera = mc.gameRenderer.getMainCamera().getPosition();
+        int distance = MbdConfig.particleViewDistance.get();
+        double maxDistance = distance <= 0 ? Double.MAX_VALUE : (double) distance * distance;
+        var groups = EMITTERS.entrySet().iterator();
+        while (groups.hasNext()) {
+            var group = groups.next();
+            ParticleRenderer renderer = group.getKey();
+            var iterator = group.getValue().values().iterator();
+            while (iterator.hasNext()) {
+                Emitter emitter = iterator.next();
+                Level level = emitter.component.self().getLevel();
+                if (emitter.component.self().isRemoved() || level != mc.level) {
+                    if (emitter.particle != null) {
+                        emitter.particle.remove();
+                    }
+                    RENDERERS.remove(emitter.component);
+                    iterator.remove();
+                    continue;
+                }
+                BlockPos pos = emitter.component.self().getBlockPos();
+                boolean visible = camera.distanceToSqr(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5) <= maxDistance;
+                if (visible && (emitter.particle == null || !emitter.particle.isAlive())) {
+                    emitter.particle = renderer.spawnParticle(emitter.component);
+                } else if (!visible && emitter.particle != null) {
+                    emitter.particle.remove();
+                    emitter.particle = null;
+                }
+            }
+            if (group.getValue().isEmpty()) {
+                groups.remove();
+            }
+        }
+    }
+}
@@ -9,12 +9,18 @@ import com.lowdragmc.lowdraglib.gui.widget.DialogWidget;
 import com.lowdragmc.lowdraglib.gui.widget.DraggableScrollableWidgetGroup;
 import com.lowdragmc.lowdraglib.gui.widget.TextFieldWidget;
 import com.lowdragmc.lowdraglib.gui.widget.WidgetGroup;
+import com.lowdragmc.multiblocked.MbdConfig;
 import com.lowdragmc.multiblocked.Multiblocked;
 import com.lowdragmc.multiblocked.api.tile.IComponent;
 import com.lowdragmc.multiblocked.client.renderer.IMultiblockedRenderer;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexConsumer;
+import com.mojang.math.Matrix3f;
+import com.mojang.math.Matrix4f;
 import com.mojang.math.Vector3f;
+import com.mojang.math.Vector4f;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
 import net.minecraft.client.renderer.block.model.BakedQuad;
 import net.minecraft.client.renderer.block.model.ItemTransforms;
 import net.minecraft.client.renderer.texture.TextureAtlas;
@@ -32,6 +38,7 @@ import net.minecraft.client.renderer.RenderType;
 import net.minecraft.client.renderer.texture.OverlayTexture;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.phys.Vec3;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 import net.minecraftforge.client.event.TextureStitchEvent;
@@ -56,13 +63,18 @@ import software.bernie.geckolib3.resource.GeckoLibCache;
 import software.bernie.geckolib3.util.RenderUtils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
@@ -70,6 +82,13 @@ import java.util.function.Supplier;
 public class GeoComponentRenderer extends AnimatedGeoModel<GeoComponentRenderer.ComponentFactory> implements IMultiblockedRenderer, IGeoRenderer<GeoComponentRenderer.ComponentFactory> {
     public final static GeoComponentRenderer INSTANCE = new GeoComponentRenderer(null, false);
     private static final Set<String> particleTexture = new HashSet<>();
+    /**
+     * game ticks between refreshes of the baked mesh of a pose group, far components are animated at this rate.
+     */
+    public static final int LOD_INTERVAL = 4;
+    // group whose pose the bones of a (shared) model currently hold
+    private static final Map<GeoModel, PoseGroup> APPLIED_POSES = new WeakHashMap<>();
+    private static long frame;
 
     static {
         if (Multiblocked.isClient()) {
@@ -89,6 +108,9 @@ public class GeoComponentRenderer extends AnimatedGeoModel<GeoComponentRenderer.
     private ComponentFactory itemFactory;
     @OnlyIn(Dist.CLIENT)
     protected MultiBufferSource rtb;
+    // status -> components animated in sync
+    @OnlyIn(Dist.CLIENT)
+    private Map<String, PoseGroup> poseGroups;
 
     public GeoComponentRenderer(String modelName, boolean isGlobal) {
         this.modelName = modelName;
@@ -106,6 +128,7 @@ public class GeoComponentRenderer extends AnimatedGeoModel<GeoComponentRenderer.
         }
         GeoModel model = this.getModel(this.getModelLocation(itemFactory));
         this.setLivingAnimations(itemFactory, this.getUniqueID(itemFactory));
+        APPLIED_POSES.remove(model);
         matrixStack.pushPose();
         net.minecraftforge.client.ForgeHooksClient.handleCameraTransforms(matrixStack, bakedModel, transformType, leftHand);
         matrixStack.translate(0, 0.01f, 0);
@@ -214,7 +237,11 @@ public class GeoComponentRenderer extends AnimatedGeoModel<GeoComponentRenderer.
             IComponent controller = (IComponent) te;
             ComponentFactory factory = (ComponentFactory) controller.getRendererObject();
             GeoModel model = this.getModel(this.getModelLocation(factory));
-            this.setLivingAnimations(factory, this.getUniqueID(factory));
+            PoseGroup group = getPoseGroup(factory, te);
+            if (group == null) {
+                this.setLivingAnimations(factory, this.getUniqueID(factory));
+                APPLIED_POSES.remove(model);
+            }
 
             stack.pushPose();
             stack.translate(0, 0.01f, 0);
@@ -241,11 +268,111 @@ public class GeoComponentRenderer extends AnimatedGeoModel<GeoComponentRenderer.
                     break;
             }
 
-            render(model, stack, buffer, combinedLight);
+            if (group == null) {
+                render(model, stack, buffer, combinedLight);
+            } else if (isFar(te)) {
+                bake(group, model, te.getLevel().getGameTime()).render(stack, buffer, combinedLight);
+            } else {
+                applyPose(group, model);
+                render(model, stack, buffer, combinedLight);
+            }
             stack.popPose();
         }
     }
 
+    /**
+     * called at the start of each frame, a group pose is computed once per frame.
+     */
+    @OnlyIn(Dist.CLIENT)
+    public static void onRenderFrame() {
+        frame++;
+    }
+
+    /**
+     * components showing the same status share the animation of their group.
+     *
+     * @return null - the component is animated on its own, while playing the transition between two status.
+     */
+    @Nullable
+    @OnlyIn(Dist.CLIENT)
+    private PoseGroup getPoseGroup(ComponentFactory factory, BlockEntity te) {
+        String status = factory.component.getStatus();
+        long gameTime = te.getLevel() == null ? 0 : te.getLevel().getGameTime();
+        if (!Objects.equals(status, factory.renderStatus)) {
+            if (factory.animationFile == null) {
+                factory.animationFile = GeckoLibCache.getInstance().getAnimations().get(getAnimationFileLocation(factory));
+            }
+            if (factory.renderStatus != null && status != null && factory.animationFile != null) {
+                Animation transition = factory.animationFile.getAnimation(factory.renderStatus + "-" + status);
+                if (transition != null) {
+                    factory.transitionEnd = gameTime + (long) Math.ceil(transition.animationLength);
+                    // the own controller hasn't seen the status while grouped
+                    factory.currentStatus = factory.renderStatus;
+                }
+            }
+            factory.renderStatus = status;
+        }
+        if (status == null || gameTime < factory.transitionEnd) {
+            return null;
+        }
+        if (poseGroups == null) {
+            poseGroups = new HashMap<>();
+        }
+        return poseGroups.computeIfAbsent(status, s -> new PoseGroup(new ComponentFactory(this, s)));
+    }
+
+    /**
+     * pose the bones of the model by the group, the animation is computed once per frame and restored for later components.
+     */
+    @OnlyIn(Dist.CLIENT)
+    private void applyPose(PoseGroup group, GeoModel model) {
+        if (group.model != model) { // models are reloaded with the resources
+            if (group.model != null) {
+                APPLIED_POSES.remove(group.model);
+            }
+            group.model = model;
+            group.bones.clear();
+            collectBones(model.topLevelBones, group.bones);
+            group.pose = new float[group.bones.size() * 9];
+            group.posedFrame = -1;
+        }
+        if (group.posedFrame != frame) {
+            this.setLivingAnimations(group.driver, this.getUniqueID(group.driver));
+            group.savePose();
+            group.posedFrame = frame;
+        } else if (APPLIED_POSES.get(model) != group) {
+            group.restorePose();
+        }
+        APPLIED_POSES.put(model, group);
+    }
+
+    @OnlyIn(Dist.CLIENT)
+    private BakedPose bake(PoseGroup group, GeoModel model, long gameTime) {
+        if (group.baked == null || group.model != model || gameTime - group.bakedTick >= LOD_INTERVAL || gameTime < group.bakedTick) {
+            applyPose(group, model);
+            BakedPose baked = new BakedPose();
+            render(model, new PoseStack(), baked, 0);
+            group.baked = baked;
+            group.bakedTick = gameTime;
+        }
+        return group.baked;
+    }
+
+    @OnlyIn(Dist.CLIENT)
+    private static boolean isFar(BlockEntity te) {
+        int distance = MbdConfig.geoLodDistance.get();
+        if (distance <= 0 || te.getLevel() != Minecraft.getInstance().level) return false;
+        Vec3 camera = Minecraft.getInstance().gameRenderer.getMainCamera().getPosition();
+        return camera.distanceToSqr(Vec3.atCenterOf(te.getBlockPos())) > (double) distance * distance;
+    }
+
+    private static void collectBones(List<GeoBone> bones, List<GeoBone> result) {
+        for (GeoBone bone : bones) {
+            result.add(bone);
+            collectBones(bone.childBones, result);
+        }
+    }
+
     void render(GeoModel model, PoseStack matrixStackIn, MultiBufferSource buffers, int packedLightIn) {
         VertexConsumer currentBuffer = buffers.getBuffer(RenderType.entityCutout(getTextureLocation(null)));
         for (GeoBone group : model.topLevelBones) {
@@ -325,10 +452,24 @@ public class GeoComponentRenderer extends AnimatedGeoModel<GeoComponentRenderer.
         public final GeoComponentRenderer renderer;
         public AnimationFile animationFile;
         public String currentStatus;
+        // fixed status of the driver of a pose group
+        private final String groupStatus;
+        // status seen by the renderer, and the game time until its transition is played by the own controller
+        private String renderStatus;
+        private long transitionEnd;
 
         public ComponentFactory(IComponent component, GeoComponentRenderer renderer) {
+            this(component, renderer, null);
+        }
+
+        private ComponentFactory(GeoComponentRenderer renderer, String groupStatus) {
+            this(null, renderer, groupStatus);
+        }
+
+        private ComponentFactory(IComponent component, GeoComponentRenderer renderer, String groupStatus) {
             this.component = component;
             this.renderer = renderer;
+            this.groupStatus = groupStatus;
             animationFile = GeckoLibCache.getInstance().getAnimations().get(renderer.getAnimationFileLocation(this));
         }
 
@@ -343,7 +484,7 @@ public class GeoComponentRenderer extends AnimatedGeoModel<GeoComponentRenderer.
             }
             AnimationController<ComponentFactory> controller = event.getController();
             String lastStatus = currentStatus;
-            currentStatus = component == null ? "unformed" : component.getStatus();
+            currentStatus = component != null ? component.getStatus() : groupStatus != null ? groupStatus : "unformed";
             if (!Objects.equals(lastStatus, currentStatus)) {
                 if (currentStatus == null) return PlayState.STOP;
                 AnimationBuilder animationBuilder = new AnimationBuilder();
@@ -371,4 +512,159 @@ public class GeoComponentRenderer extends AnimatedGeoModel<GeoComponentRenderer.
 
     }
 
+    /**
+     * components animated by one driver, with the computed pose of the current frame.
+     */
+    @OnlyIn(Dist.CLIENT)
+    private static class PoseGroup {
+        private final ComponentFactory driver;
+        private final List<GeoBone> bones = new ArrayList<>();
+        private GeoModel model;
+        // rotation, position and scale per bone
+        private float[] pose = new float[0];
+        private long posedFrame = -1;
+        private BakedPose baked;
+        private long bakedTick;
+
+        private PoseGroup(ComponentFactory driver) {
+            this.driver = driver;
+        }
+
+        private void savePose() {
+            for (int i = 0, j = 0; i < bones.size(); i++) {
+                GeoBone bone = bones.get(i);
+                pose[j++] = bone.getRotationX();
+                pose[j++] = bone.getRotationY();
+                pose[j++] = bone.getRotationZ();
+                pose[j++] = bone.getPositionX();
+                pose[j++] = bone.getPositionY();
+                pose[j++] = bone.getPositionZ();
+                pose[j++] = bone.getScaleX();
+                pose[j++] = bone.getScaleY();
+                pose[j++] = bone.getScaleZ();
+            }
+        }
+
+        private void restorePose() {
+            for (int i = 0, j = 0; i < bones.size(); i++) {
+                GeoBone bone = bones.get(i);
+                bone.setRotationX(pose[j++]);
+                bone.setRotationY(pose[j++]);
+                bone.setRotationZ(pose[j++]);
+                bone.setPositionX(pose[j++]);
+                bone.setPositionY(pose[j++]);
+                bone.setPositionZ(pose[j++]);
+                bone.setScaleX(pose[j++]);
+                bone.setScaleY(pose[j++]);
+                bone.setScaleZ(pose[j++]);
+            }
+        }
+    }
+
+    /**
+     * vertices of a posed model in model space, captured per render type and replayed with the pose of a component.
+     */
+    @OnlyIn(Dist.CLIENT)
+    private static class BakedPose implements MultiBufferSource {
+        // x, y, z, u, v, normal x, y, z, light bits (0 - light of the component)
+        private static final int VERTEX_SIZE = 9;
+        private final Map<RenderType, FloatArrayList> meshes = new Object2ObjectLinkedOpenHashMap<>();
+
+        @Override
+        public VertexConsumer getBuffer(RenderType type) {
+            return new Capture(meshes.computeIfAbsent(type, t -> new FloatArrayList()));
+        }
+
+        private void render(PoseStack stack, MultiBufferSource buffers, int packedLight) {
+            Matrix4f pose = stack.last().pose();
+            Matrix3f normal = stack.last().normal();
+            Vector4f position = new Vector4f();
+            Vector3f direction = new Vector3f();
+            for (Map.Entry<RenderType, FloatArrayList> entry : meshes.entrySet()) {
+                VertexConsumer buffer = buffers.getBuffer(entry.getKey());
+                float[] data = entry.getValue().elements();
+                int size = entry.getValue().size();
+                for (int i = 0; i < size; i += VERTEX_SIZE) {
+                    position.set(data[i], data[i + 1], data[i + 2], 1);
+                    position.transform(pose);
+                    direction.set(data[i + 5], data[i + 6], data[i + 7]);
+                    direction.transform(normal);
+                    int light = Float.floatToRawIntBits(data[i + 8]);
+                    buffer.vertex(position.x(), position.y(), position.z(), 1, 1, 1, 1, data[i + 3], data[i + 4],
+                            OverlayTexture.NO_OVERLAY, light == 0 ? packedLight : light, direction.x(), direction.y(), direction.z());
+                }
+            }
+        }
+
+        private static class Capture implements VertexConsumer {
+            private final FloatArrayList data;
+            private float x, y, z, u, v, normalX, normalY, normalZ;
+            private int light;
+
+            private Capture(FloatArrayList data) {
+                this.data = data;
+            }
+
+            @Override
+            public VertexConsumer vertex(double x, double y, double z) {
+                this.x = (float) x;
+                this.y = (float) y;
+                this.z = (float) z;
+                return this;
+            }
+
+            @Override
+            public VertexConsumer color(int red, int green, int blue, int alpha) {
+                return this;
+            }
+
+            @Override
+            public VertexConsumer uv(float u, float v) {
+                this.u = u;
+                this.v = v;
+                return this;
+            }
+
+            @Override
+            public VertexConsumer overlayCoords(int u, int v) {
+                return this;
+            }
+
+            @Override
+            public VertexConsumer uv2(int u, int v) {
+                this.light = u | v << 16;
+                return this;
+            }
+
+            @Override
+            public VertexConsumer normal(float x, float y, float z) {
+                this.normalX = x;
+                this.normalY = y;
+                this.normalZ = z;
+                return this;
+            }
+
+            @Override
+            public void endVertex() {
+                data.add(x);
+                data.add(y);
+                data.add(z);
+                data.add(u);
+                data.add(v);
+                data.add(normalX);
+                data.add(normalY);
+                data.add(normalZ);
+                data.add(Float.intBitsToFloat(light));
+            }
+
+            @Override
+            public void defaultColor(int red, int green, int blue, int alpha) {
+            }
+
+            @Override
+            public void unsetDefaultColor() {
+            }
+        }
+    }
+
 }
@@ -16,6 +16,7 @@ import com.lowdragmc.lowdraglib.gui.widget.WidgetGroup;
 import com.lowdragmc.multiblocked.Multiblocked;
 import com.lowdragmc.multiblocked.api.tile.IComponent;
 import com.lowdragmc.multiblocked.client.renderer.IMultiblockedRenderer;
+import com.lowdragmc.multiblocked.client.renderer.ParticleEmitterManager;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceLocation;
@@ -57,20 +58,36 @@ public class ParticleRenderer implements IMultiblockedRenderer {
         return particle;
     }
 
+    /**
+     * spawn the particle of the component, called by the {@link ParticleEmitterManager} on the client thread.
+     */
+    @OnlyIn(Dist.CLIENT)
+    public LParticle spawnParticle(IComponent component) {
+        BlockPos pos = component.self().getBlockPos();
+        LParticle particle = createParticle(component, pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
+        if (particle != null) {
+            particle.setImmortal();
+            particle.setCull(shouldCull);
+            particle.addParticle();
+        }
+        return particle;
+    }
+
     @Override
     @OnlyIn(Dist.CLIENT)
     public final void onPreAccess(IComponent component) {
+        if (ParticleEmitterManager.isManaged(component)) {
+            ParticleEmitterManager.attach(component, this);
+            return;
+        }
+        // components of scenes, e.g. of a gui, own their particle. it is reclaimed together with the scene.
         synchronized (INSTANCE) {
-            BlockPos pos = component.self().getBlockPos();
-            LParticle particle = createParticle(component, pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
+            LParticle particle = spawnParticle(component);
             component.setRendererObject(particle);
             if (particle != null) {
                 particle.setOnUpdate(p -> {
                     if (component.self().isRemoved() || component.self().getLevel().getBlockEntity(component.self().getBlockPos()) != component) p.remove();
                 });
-                particle.setImmortal();
-                particle.setCull(shouldCull);
-                particle.addParticle();
             }
         }
     }
@@ -87,6 +104,8 @@ public class ParticleRenderer implements IMultiblockedRenderer {
         if (component.getRendererObject() instanceof LParticle particle) {
             particle.remove();
             component.setRendererObject(null);
+        } else {
+            ParticleEmitterManager.detach(component);
         }
     }
 
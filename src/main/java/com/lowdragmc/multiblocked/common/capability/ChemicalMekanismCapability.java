@@ -36,9 +36,12 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
@@ -191,6 +194,16 @@ public class ChemicalMekanismCapability<CHEMICAL extends Chemical<CHEMICAL>, STA
         return (STACK) content.copy();
     }
 
+    @Override
+    public long getAmount(STACK content) {
+        return content.getAmount();
+    }
+
+    @Override
+    public Collection<?> getIndexKeys(STACK content) {
+        return content.isEmpty() ? null : Collections.singleton(content.getType());
+    }
+
     @Override
     public STACK copyWithModifier(STACK content, ContentModifier modifier) {
         STACK copy = (STACK) content.copy();
@@ -275,6 +288,35 @@ public class ChemicalMekanismCapability<CHEMICAL extends Chemical<CHEMICAL>, STA
             return left.isEmpty() ? null : left;
         }
 
+        @Override
+        protected void simulateInner(IO io, Recipe recipe, List<?> contents, long[] remaining, int offset, @Nullable String slotName) {
+            IChemicalHandler<CHEMICAL, STACK> capability = getCapability(slotName);
+            if (capability == null) return;
+            for (int j = offset; j < offset + contents.size(); j++) {
+                if (remaining[j] <= 0) continue;
+                STACK chemicalStack = scratchOf((STACK) contents.get(j - offset), content -> (STACK) content.copy());
+                chemicalStack.setAmount(remaining[j]);
+                if (io == IO.IN) {
+                    remaining[j] -= capability.extractChemical(chemicalStack, Action.SIMULATE).getAmount();
+                } else if (io == IO.OUT) {
+                    remaining[j] = capability.insertChemical(chemicalStack, Action.SIMULATE).getAmount();
+                }
+            }
+        }
+
+        @Override
+        public boolean collectIndexKeys(Consumer<Object> collector) {
+            IChemicalHandler<CHEMICAL, STACK> capability = getCapability(null);
+            if (capability == null) return true;
+            for (int i = 0; i < capability.getTanks(); i++) {
+                STACK stored = capability.getChemicalInTank(i);
+                if (!stored.isEmpty()) {
+                    collector.accept(stored.getType());
+                }
+            }
+            return true;
+        }
+
         List<STACK> lastStacks = new ArrayList<>(0);
         long[] lastCapability = new long[0];
 
@@ -39,8 +39,11 @@ import org.jetbrains.annotations.Nullable;
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class FluidMultiblockCapability extends MultiblockCapability<FluidStack> {
     public static final FluidMultiblockCapability CAP = new FluidMultiblockCapability();
@@ -65,6 +68,16 @@ public class FluidMultiblockCapability extends MultiblockCapability<FluidStack>
         return content.copy();
     }
 
+    @Override
+    public long getAmount(FluidStack content) {
+        return content.isEmpty() ? -1 : content.getAmount();
+    }
+
+    @Override
+    public Collection<?> getIndexKeys(FluidStack content) {
+        return content.isEmpty() ? null : Collections.singleton(content.getFluid());
+    }
+
     @Override
     public FluidStack copyWithModifier(FluidStack content, ContentModifier modifier) {
         FluidStack copy = content.copy();
@@ -226,6 +239,46 @@ public class FluidMultiblockCapability extends MultiblockCapability<FluidStack>
             return left.isEmpty() ? null : left;
         }
 
+        @Override
+        protected void simulateInner(IO io, Recipe recipe, List<?> contents, long[] remaining, int offset, @Nullable String slotName) {
+            IFluidHandler capability = getCapability(slotName);
+            if (capability == null) return;
+            for (int j = offset; j < offset + contents.size(); j++) {
+                if (remaining[j] <= 0) continue;
+                FluidStack fluidStack = (FluidStack) contents.get(j - offset);
+                if (io == IO.IN) {
+                    boolean found = false;
+                    for (int i = 0; i < capability.getTanks(); i++) {
+                        if (capability.getFluidInTank(i).isFluidEqual(fluidStack)) {
+                            found = true;
+                            break;
+                        }
+                    }
+                    if (!found) continue;
+                    FluidStack scratch = scratchOf(fluidStack, FluidStack::copy);
+                    scratch.setAmount((int) remaining[j]);
+                    remaining[j] -= capability.drain(scratch, IFluidHandler.FluidAction.SIMULATE).getAmount();
+                } else if (io == IO.OUT) {
+                    FluidStack scratch = scratchOf(fluidStack, FluidStack::copy);
+                    scratch.setAmount((int) remaining[j]);
+                    remaining[j] -= capability.fill(scratch, IFluidHandler.FluidAction.SIMULATE);
+                }
+            }
+        }
+
+        @Override
+        public boolean collectIndexKeys(Consumer<Object> collector) {
+            IFluidHandler capability = getCapability(null);
+            if (capability == null) return true;
+            for (int i = 0; i < capability.getTanks(); i++) {
+                FluidStack stored = capability.getFluidInTank(i);
+                if (!stored.isEmpty()) {
+                    collector.accept(stored.getFluid());
+                }
+            }
+            return true;
+        }
+
         FluidStack[] lastContents = new FluidStack[0];
         int[] lastCaps = new int[0];
 
@@ -24,6 +24,7 @@ import com.lowdragmc.multiblocked.core.mixins.NBTIngredientMixin;
 import io.netty.buffer.Unpooled;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
 import net.minecraft.world.item.crafting.Ingredient;
@@ -36,8 +37,12 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.Nonnull;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class ItemMultiblockCapability extends MultiblockCapability<Ingredient> {
     public static final ItemMultiblockCapability CAP = new ItemMultiblockCapability();
@@ -65,6 +70,35 @@ public class ItemMultiblockCapability extends MultiblockCapability<Ingredient> {
         return Ingredient.fromNetwork(buf);
     }
 
+    @Override
+    public long getAmount(Ingredient content) {
+        int amount = getIngredientAmount(content);
+        return amount > 0 ? amount : -1;
+    }
+
+    public static int getIngredientAmount(Ingredient ingredient) {
+        if (ingredient instanceof SizedIngredient sizedIngredient) {
+            return sizedIngredient.getAmount();
+        }
+        ItemStack[] stacks = ingredient.getItems();
+        return stacks.length == 0 ? 0 : stacks[0].getCount();
+    }
+
+    private static ItemStack getOutputStack(Ingredient ingredient) {
+        return ingredient instanceof NBTIngredient nbtIngredient ? ((NBTIngredientMixin) nbtIngredient).getStack() : ingredient.getItems()[0];
+    }
+
+    @Override
+    public Collection<?> getIndexKeys(Ingredient content) {
+        ItemStack[] stacks = content.getItems();
+        if (stacks.length == 0) return null;
+        Set<Item> items = new HashSet<>();
+        for (ItemStack stack : stacks) {
+            items.add(stack.getItem());
+        }
+        return items;
+    }
+
     @Override
     public Ingredient copyWithModifier(Ingredient content, ContentModifier modifier) {
         Ingredient copy = copyInner(content);
@@ -139,33 +173,32 @@ public class ItemMultiblockCapability extends MultiblockCapability<Ingredient> {
         protected List<Ingredient> handleRecipeInner(IO io, Recipe recipe, List<Ingredient> left, @Nullable String slotName, boolean simulate) {
             IItemHandler capability = getCapability(slotName);
             if (capability == null) return left;
-            Iterator<Ingredient> iterator = left.iterator();
+            ListIterator<Ingredient> iterator = left.listIterator();
             if (io == IO.IN) {
                 while (iterator.hasNext()) {
                     Ingredient ingredient = iterator.next();
-                    SLOT_LOOKUP:
-                    for (int i = 0; i < capability.getSlots(); i++) {
+                    int amount = getIngredientAmount(ingredient);
+                    boolean found = false;
+                    for (int i = 0; i < capability.getSlots() && (amount > 0 || !found); i++) {
                         ItemStack itemStack = capability.getStackInSlot(i);
-                        //Does not look like a good implementation, but I think it's at least equal to vanilla Ingredient::test
-                        if (ingredient.test(itemStack)) {
-                            ItemStack[] ingredientStacks = ingredient.getItems();
-                            for (ItemStack ingredientStack : ingredientStacks) {
-                                if (ingredientStack.is(itemStack.getItem())) {
-                                    ItemStack extracted = capability.extractItem(i, ingredientStack.getCount(), simulate);
-                                    ingredientStack.setCount(ingredientStack.getCount() - extracted.getCount());
-                                    if (ingredientStack.isEmpty()) {
-                                        iterator.remove();
-                                        break SLOT_LOOKUP;
-                                    }
-                                }
+                        if (!itemStack.isEmpty() && ingredient.test(itemStack)) {
+                            found = true;
+                            if (amount > 0) {
+                                amount -= capability.extractItem(i, amount, simulate).getCount();
                             }
                         }
                     }
+                    if (!found) continue;
+                    if (amount <= 0) {
+                        iterator.remove();
+                    } else {
+                        iterator.set(new SizedIngredient(ingredient instanceof SizedIngredient sizedIngredient ? sizedIngredient.getInner() : ingredient, amount));
+                    }
                 }
             } else if (io == IO.OUT) {
                 while (iterator.hasNext()) {
                     Ingredient ingredient = iterator.next();
-                    ItemStack output = ingredient instanceof NBTIngredient nbtIngredient ? ((NBTIngredientMixin) nbtIngredient).getStack() : ingredient.getItems()[0];
+                    ItemStack output = getOutputStack(ingredient);
                     for (int i = 0; i < capability.getSlots(); i++) {
                         ItemStack leftStack = capability.insertItem(i, output.copy(), simulate);
                         output.setCount(leftStack.getCount());
@@ -177,6 +210,43 @@ public class ItemMultiblockCapability extends MultiblockCapability<Ingredient> {
             return left.isEmpty() ? null : left;
         }
 
+        @Override
+        protected void simulateInner(IO io, Recipe recipe, List<?> contents, long[] remaining, int offset, @Nullable String slotName) {
+            IItemHandler capability = getCapability(slotName);
+            if (capability == null) return;
+            for (int j = offset; j < offset + contents.size(); j++) {
+                if (remaining[j] <= 0) continue;
+                Ingredient ingredient = (Ingredient) contents.get(j - offset);
+                if (io == IO.IN) {
+                    for (int i = 0; i < capability.getSlots() && remaining[j] > 0; i++) {
+                        ItemStack itemStack = capability.getStackInSlot(i);
+                        if (!itemStack.isEmpty() && ingredient.test(itemStack)) {
+                            remaining[j] -= capability.extractItem(i, (int) remaining[j], true).getCount();
+                        }
+                    }
+                } else if (io == IO.OUT) {
+                    ItemStack output = scratchOf(getOutputStack(ingredient), ItemStack::copy);
+                    for (int i = 0; i < capability.getSlots() && remaining[j] > 0; i++) {
+                        output.setCount((int) remaining[j]);
+                        remaining[j] = capability.insertItem(i, output, true).getCount();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean collectIndexKeys(Consumer<Object> collector) {
+            IItemHandler capability = getCapability(null);
+            if (capability == null) return true;
+            for (int i = 0; i < capability.getSlots(); i++) {
+                ItemStack itemStack = capability.getStackInSlot(i);
+                if (!itemStack.isEmpty()) {
+                    collector.accept(itemStack.getItem());
+                }
+            }
+            return true;
+        }
+
         ItemStack[] lastStacks = new ItemStack[0];
         int[] limits = new int[0];
 
@@ -62,7 +62,7 @@ public class ChemicalCapabilityTrait<CHEMICAL extends Chemical<CHEMICAL>, STACK
         for (JsonElement element : jsonArray) {
             JsonObject jsonObject = element.getAsJsonObject();
             tankCapability[handlers.size()] = GsonHelper.getAsLong(jsonObject, "tankCapability", 1000L);
-            handlers.add(tankBuilder.createAllValid(tankCapability[handlers.size()], this::markAsDirty));
+            handlers.add(tankBuilder.createAllValid(tankCapability[handlers.size()], this::onContentsChanged));
         }
     }
 
@@ -76,6 +76,16 @@ public class ChemicalCapabilityTrait<CHEMICAL extends Chemical<CHEMICAL>, STACK
         return jsonArray;
     }
 
+    private void onContentsChanged() {
+        markAsDirty();
+        notifyContentChanged();
+    }
+
+    @Override
+    public boolean canNotifyChanges() {
+        return true;
+    }
+
     @Override
     public boolean hasUpdate() {
         return ArrayUtils.contains(autoIO, true);
@@ -117,6 +117,11 @@ public class FECapabilityTrait extends ProgressCapabilityTrait {
         return CapabilityEnergy.ENERGY.orEmpty(capability, LazyOptional.of(() -> new ProxyEnergyStorage(handler, this.guiIO, true)));
     }
 
+    @Override
+    public boolean canNotifyChanges() {
+        return true;
+    }
+
     @Override
     public boolean hasUpdate() {
         return capabilityIO == IO.OUT;
@@ -124,7 +129,8 @@ public class FECapabilityTrait extends ProgressCapabilityTrait {
 
     @Override
     public void update() {
-        int left = Math.min(maxExtract, handler.getEnergyStored());
+        int stored = handler.getEnergyStored();
+        int left = Math.min(maxExtract, stored);
         if (left > 0) {
             for (Direction facing : getIOFacing()) {
                 BlockEntity te = component.getLevel().getBlockEntity(component.getBlockPos().relative(facing));
@@ -139,6 +145,9 @@ public class FECapabilityTrait extends ProgressCapabilityTrait {
                     }
                 }
             }
+            if (handler.getEnergyStored() < stored) {
+                notifyContentChanged();
+            }
         }
     }
 
@@ -164,8 +173,11 @@ public class FECapabilityTrait extends ProgressCapabilityTrait {
         public int receiveEnergy(int maxReceive, boolean simulate) {
             if (!canIO) return 0;
             if (io == IO.BOTH || io == IO.IN) {
-                if (!simulate) markAsDirty();
-                return proxy.receiveEnergy(maxReceive, simulate);
+                if (simulate) return proxy.receiveEnergy(maxReceive, true);
+                markAsDirty();
+                int received = proxy.receiveEnergy(maxReceive, false);
+                if (received > 0) notifyContentChanged();
+                return received;
             }
             return 0;
         }
@@ -174,8 +186,11 @@ public class FECapabilityTrait extends ProgressCapabilityTrait {
         public int extractEnergy(int maxExtract, boolean simulate) {
             if (!canIO) return 0;
             if (io == IO.BOTH || io == IO.OUT) {
-                if (!simulate) markAsDirty();
-                return proxy.extractEnergy(maxExtract, simulate);
+                if (simulate) return proxy.extractEnergy(maxExtract, true);
+                markAsDirty();
+                int extracted = proxy.extractEnergy(maxExtract, false);
+                if (extracted > 0) notifyContentChanged();
+                return extracted;
             }
             return 0;
         }
@@ -84,7 +84,12 @@ public class FluidCapabilityTrait extends MultiCapabilityTrait {
             }
             i++;
         }
-        FluidTank[] fluidTanks = Arrays.stream(tankCapability).mapToObj(FluidTank::new).toArray(FluidTank[]::new);
+        FluidTank[] fluidTanks = Arrays.stream(tankCapability).mapToObj(capacity -> new FluidTank(capacity) {
+            @Override
+            protected void onContentsChanged() {
+                notifyContentChanged();
+            }
+        }).toArray(FluidTank[]::new);
         for (int j = 0; j < fluidTanks.length; j++) {
             if (validFluids[j] != null) {
                 final FluidStack[] fluids = validFluids[j];
@@ -120,6 +125,11 @@ public class FluidCapabilityTrait extends MultiCapabilityTrait {
         return jsonArray;
     }
 
+    @Override
+    public boolean canNotifyChanges() {
+        return true;
+    }
+
     @Override
     public boolean hasUpdate() {
         return ArrayUtils.contains(autoIO, true);
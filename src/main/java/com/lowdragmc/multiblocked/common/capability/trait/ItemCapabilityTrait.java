@@ -70,6 +70,11 @@ public class ItemCapabilityTrait extends MultiCapabilityTrait {
                 }
                 return super.isItemValid(slot, stack);
             }
+
+            @Override
+            protected void onContentsChanged(int slot) {
+                notifyContentChanged();
+            }
         };
     }
 
@@ -142,6 +147,11 @@ public class ItemCapabilityTrait extends MultiCapabilityTrait {
         }
     }
 
+    @Override
+    public boolean canNotifyChanges() {
+        return true;
+    }
+
     @Override
     public boolean hasUpdate() {
         return ArrayUtils.contains(autoIO, true);
@@ -0,0 +1,71 @@
+package com.lowdragmc.multiblocked.common.command;
+
+import com.lowdragmc.multiblocked.api.profiler.MbdProfiler;
+import com.lowdragmc.multiblocked.api.profiler.ProfileStats;
+import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.TextComponent;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * /mbd profile start|stop|report [count]
+ */
+public class MbdCommands {
+
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("mbd")
+                .requires(source -> source.hasPermission(2))
+                .then(Commands.literal("profile")
+                        .then(Commands.literal("start").executes(context -> {
+                            MbdProfiler.start();
+                            context.getSource().sendSuccess(new TextComponent("Multiblocked profiler started"), true);
+                            return 1;
+                        }))
+                        .then(Commands.literal("stop").executes(context -> {
+                            MbdProfiler.stop();
+                            context.getSource().sendSuccess(new TextComponent("Multiblocked profiler stopped"), true);
+                            return 1;
+                        }))
+                        .then(Commands.literal("report")
+                                .executes(context -> report(context.getSource(), 10))
+                                .then(Commands.argument("count", IntegerArgumentType.integer(1, 100))
+                                        .executes(context -> report(context.getSource(), IntegerArgumentType.getInteger(context, "count")))))));
+    }
+
+    private static int report(CommandSourceStack source, int count) {
+        double seconds = Math.max(MbdProfiler.getElapsedNanos() / 1e9, 1e-3);
+        long periods = MbdProfiler.getAsyncPeriods();
+        source.sendSuccess(new TextComponent("Multiblocked profile of %.1fs%s, async periods: %d (avg %.2f ms, max %.2f ms), revalidation queue: %d".formatted(
+                seconds, MbdProfiler.isEnabled() ? " (running)" : "",
+                periods, periods == 0 ? 0 : MbdProfiler.getAsyncPeriodNanos() / 1e6 / periods, MbdProfiler.getAsyncPeriodMaxNanos() / 1e6,
+                MultiblockWorldSavedData.getPendingRevalidations())), false);
+        source.sendSuccess(new TextComponent("Definitions:"), false);
+        MbdProfiler.getDefinitions().entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<ResourceLocation, ProfileStats> entry) -> entry.getValue().updateNanos.sum()).reversed())
+                .limit(count)
+                .forEach(entry -> source.sendSuccess(new TextComponent(" " + entry.getKey() + ": " + format(entry.getValue(), seconds)), false));
+        source.sendSuccess(new TextComponent("Controllers:"), false);
+        MbdProfiler.getControllers().entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<MbdProfiler.ControllerKey, ProfileStats> entry) -> entry.getValue().updateNanos.sum()).reversed())
+                .limit(count)
+                .forEach(entry -> source.sendSuccess(new TextComponent(" " + entry.getKey() + ": " + format(entry.getValue(), seconds)), false));
+        return 1;
+    }
+
+    private static String format(ProfileStats stats, double seconds) {
+        long patternChecks = stats.patternChecks.sum();
+        return "update %.2f ms/s, searches %.1f/s, hit %.0f%%, candidates %.1f, kubejs %.2f ms/s, pattern checks %d (avg %.3f ms)".formatted(
+                stats.updateNanos.sum() / 1e6 / seconds,
+                stats.searches.sum() / seconds,
+                stats.getHitRatio() * 100,
+                stats.getAverageCandidates(),
+                stats.kubejsNanos.sum() / 1e6 / seconds,
+                patternChecks, patternChecks == 0 ? 0 : stats.patternNanos.sum() / 1e6 / patternChecks);
+    }
+}
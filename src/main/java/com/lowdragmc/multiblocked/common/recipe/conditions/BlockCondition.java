@@ -8,7 +8,6 @@ import com.lowdragmc.multiblocked.Multiblocked;
 import com.lowdragmc.multiblocked.api.recipe.Recipe;
 import com.lowdragmc.multiblocked.api.recipe.RecipeCondition;
 import com.lowdragmc.multiblocked.api.recipe.RecipeLogic;
-import net.minecraft.core.BlockPos;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.TranslatableComponent;
@@ -58,14 +57,7 @@ public class BlockCondition extends RecipeCondition {
 
     @Override
     public boolean test(@Nonnull Recipe recipe, @Nonnull RecipeLogic recipeLogic) {
-        int amount = 0;
-        for (BlockPos pos : recipeLogic.controller.getMultiblockState().getCache()) {
-            if (recipeLogic.controller.self().getLevel().getBlockState(pos) == blockState) {
-                amount++;
-                if (amount >= count) break;
-            }
-        }
-        return amount >= count;
+        return recipeLogic.controller.getMultiblockState().getBlockCount(blockState) >= count;
     }
 
     @Override
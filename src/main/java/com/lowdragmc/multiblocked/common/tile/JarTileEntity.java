@@ -35,7 +35,7 @@ public class JarTileEntity extends PartTileEntity.PartSimpleTileEntity {
         @Override
         protected void onContentsChanged() {
             markAsDirty();
-            writeCustomData(-2, buf -> buf.writeNbt(handler.writeToNBT(new CompoundTag())));
+            writeCustomData(-2, buf -> buf.writeNbt(handler.writeToNBT(new CompoundTag())), true);
         }
     };
 
@@ -32,7 +32,7 @@ public class PedestalTileEntity extends PartTileEntity.PartSimpleTileEntity {
         @Override
         protected void onContentsChanged(int slot) {
             markAsDirty();
-            writeCustomData(-2, buf -> buf.writeNbt(handler.serializeNBT()));
+            writeCustomData(-2, buf -> buf.writeNbt(handler.serializeNBT()), true);
         }
 
         @Override
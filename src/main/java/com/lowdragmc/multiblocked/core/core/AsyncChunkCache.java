@@ -0,0 +1,71 @@
+package com.lowdragmc.multiblocked.core.core;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+
+/**
+ * Chunk cache of a level for the async service threads, see ServerChunkProviderMixin.
+ * <br>
+ * Lookups read an immutable snapshot without locking, a miss publishes a new snapshot by CAS.
+ * The cache is direct-mapped, a chunk replaces the one in its slot.
+ */
+public class AsyncChunkCache {
+    /**
+     * async components are batched by regions of 4x4 chunks, a few regions per async thread fit.
+     */
+    public static final int CAPACITY = 64;
+    private static final long[] EMPTY_POSITIONS = new long[0];
+    private static final LevelChunk[] EMPTY_CHUNKS = new LevelChunk[0];
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(EMPTY_POSITIONS, EMPTY_CHUNKS));
+
+    private record Snapshot(long[] positions, LevelChunk[] chunks) {
+        @Nullable
+        LevelChunk get(long chunkPos) {
+            if (chunks.length == 0) return null;
+            int slot = slot(chunkPos);
+            return positions[slot] == chunkPos ? chunks[slot] : null;
+        }
+
+        Snapshot with(long chunkPos, LevelChunk chunk) {
+            long[] newPositions = chunks.length == 0 ? new long[CAPACITY] : positions.clone();
+            LevelChunk[] newChunks = chunks.length == 0 ? new LevelChunk[CAPACITY] : chunks.clone();
+            int slot = slot(chunkPos);
+            newPositions[slot] = chunkPos;
+            newChunks[slot] = chunk;
+            return new Snapshot(newPositions, newChunks);
+        }
+    }
+
+    private static int slot(long chunkPos) {
+        return (int) HashCommon.mix(chunkPos) & (CAPACITY - 1);
+    }
+
+    /**
+     * @param loader loads the chunk if it is missing, a null result isn't cached.
+     */
+    @Nullable
+    public LevelChunk computeIfAbsent(long chunkPos, LongFunction<LevelChunk> loader) {
+        Snapshot current = snapshot.get();
+        LevelChunk chunk = current.get(chunkPos);
+        if (chunk == null) {
+            chunk = loader.apply(chunkPos);
+            if (chunk != null) {
+                // dropped if the cache has changed meanwhile, especially if it has been invalidated.
+                snapshot.compareAndSet(current, current.with(chunkPos, chunk));
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * drop all chunks. A new snapshot instance is published, so a chunk loaded before can't be added afterwards.
+     */
+    public void invalidate() {
+        snapshot.set(new Snapshot(EMPTY_POSITIONS, EMPTY_CHUNKS));
+    }
+}
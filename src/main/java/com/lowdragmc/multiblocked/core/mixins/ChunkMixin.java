@@ -19,18 +19,33 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 public class ChunkMixin {
     @Final @Shadow Level level;
 
+    private MultiblockWorldSavedData mbdSavedData;
+
     // We want to be as quick as possible here
     @Inject(method = "setBlockState", at =@At(value = "FIELD", opcode = Opcodes.GETFIELD, target = "Lnet/minecraft/world/level/Level;captureBlockSnapshots:Z"))
     private void onAddingBlock(BlockPos pos, BlockState state, boolean isMoving, CallbackInfoReturnable<BlockState> cir) {
         MinecraftServer server = level.getServer();
         if (server != null) {
-            server.executeBlocking(() -> {
-                for (MultiblockState structure : MultiblockWorldSavedData.getOrCreate(level).getControllerInChunk(((LevelChunk)(Object)this).getPos())) {
-                    if (structure.isPosInCache(pos)) {
-                        structure.onBlockStateChanged(pos);
-                    }
-                }
-            });
+            MultiblockWorldSavedData mbds = this.mbdSavedData;
+            if (mbds != null && mbds.getStructuresAt(pos) == null) return; // no structure here
+            if (server.isSameThread()) {
+                onStructureBlockChanged(pos);
+            } else {
+                BlockPos immutable = pos.immutable();
+                server.executeBlocking(() -> onStructureBlockChanged(immutable));
+            }
+        }
+    }
+
+    private void onStructureBlockChanged(BlockPos pos) {
+        if (mbdSavedData == null) {
+            mbdSavedData = MultiblockWorldSavedData.getOrCreate(level);
+        }
+        MultiblockState[] structures = mbdSavedData.getStructuresAt(pos);
+        if (structures != null) {
+            for (MultiblockState structure : structures) {
+                structure.onBlockStateChanged(pos);
+            }
         }
     }
 
@@ -23,11 +23,13 @@ public class RenderChunkMixin {
             PoseStack pPoseStack, VertexConsumer pConsumer,
             boolean pCheckSides, Random pRandom,
             IModelData modelData) {
-        MultiblockWorldSavedData.isBuildingChunk.set(true);
-        if (MultiblockWorldSavedData.isModelDisabled(pPos)) {
-            MultiblockWorldSavedData.isBuildingChunk.set(false);
+        if (!MultiblockWorldSavedData.isSectionAffected(pPos)) {
+            return blockRendererDispatcher.renderBatched(pState, pPos, pLevel, pPoseStack, pConsumer, pCheckSides, pRandom, modelData);
+        }
+        if (MultiblockWorldSavedData.isPositionDisabled(pPos.getX(), pPos.getY(), pPos.getZ())) {
             return false;
         }
+        MultiblockWorldSavedData.isBuildingChunk.set(true);
         boolean result = blockRendererDispatcher.renderBatched(pState, pPos, pLevel, pPoseStack, pConsumer, pCheckSides, pRandom, modelData);
         MultiblockWorldSavedData.isBuildingChunk.set(false);
         return result;
@@ -1,5 +1,6 @@
 package com.lowdragmc.multiblocked.core.mixins;
 
+import com.lowdragmc.multiblocked.core.core.AsyncChunkCache;
 import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
 import com.mojang.datafixers.util.Either;
 import net.minecraft.server.level.ChunkHolder;
@@ -18,7 +19,6 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import javax.annotation.Nullable;
-import java.util.Arrays;
 
 @Mixin(ServerChunkCache.class)
 public abstract class ServerChunkProviderMixin {
@@ -27,58 +27,32 @@ public abstract class ServerChunkProviderMixin {
 
     @Shadow @Final public ServerLevel level;
 
-    private final long[] mbdLastChunkPos = new long[4];
-
-    private final LevelChunk[] mbdLastChunk = new LevelChunk[4];
+    private final AsyncChunkCache mbdChunkCache = new AsyncChunkCache();
 
     @Shadow @Nullable protected abstract ChunkHolder getVisibleChunkIfPresent(long p_217213_1_);
 
-    private void storeInCache(long pos, LevelChunk chunkAccess) {
-        synchronized (this.mbdLastChunkPos) {
-            for(int i = 3; i > 0; --i) {
-                this.mbdLastChunkPos[i] = this.mbdLastChunkPos[i - 1];
-                this.mbdLastChunk[i] = this.mbdLastChunk[i - 1];
-            }
-
-            this.mbdLastChunkPos[0] = pos;
-            this.mbdLastChunk[0] = chunkAccess;
-        }
-    }
-
     @Inject(method = "clearCache", at = @At(value = "TAIL"))
     private void injectClearCache(CallbackInfo ci) {
-        synchronized (this.mbdLastChunkPos) {
-            Arrays.fill(this.mbdLastChunkPos, ChunkPos.INVALID_CHUNK_POS);
-            Arrays.fill(this.mbdLastChunk, null);
-        }
+        mbdChunkCache.invalidate();
     }
 
     @Inject(method = "getChunkNow", at = @At(value = "HEAD"), cancellable = true)
     private void getTileEntity(int pChunkX, int pChunkZ, CallbackInfoReturnable<LevelChunk> cir) {
         if (Thread.currentThread() != this.mainThread && MultiblockWorldSavedData.isThreadService()) {
-            long i = ChunkPos.asLong(pChunkX, pChunkZ);
-
-            for(int j = 0; j < 4; ++j) {
-                if (i == this.mbdLastChunkPos[j]) {
-                    cir.setReturnValue(this.mbdLastChunk[j]);
-                    return;
-                }
-            }
+            cir.setReturnValue(mbdChunkCache.computeIfAbsent(ChunkPos.asLong(pChunkX, pChunkZ), this::mbdGetFullChunk));
+        }
+    }
 
-            ChunkHolder chunkholder = this.getVisibleChunkIfPresent(i);
-            if (chunkholder != null) {
-                Either<ChunkAccess, ChunkHolder.ChunkLoadingFailure> either = chunkholder.getFutureIfPresent(ChunkStatus.FULL).getNow(null);
-                if (either != null) {
-                    ChunkAccess chunk = either.left().orElse(null);
-                    if (chunk instanceof LevelChunk levelChunk) {
-                        storeInCache(i, levelChunk);
-                        cir.setReturnValue(levelChunk);
-                        return;
-                    }
-                }
+    @Nullable
+    private LevelChunk mbdGetFullChunk(long pos) {
+        ChunkHolder chunkholder = this.getVisibleChunkIfPresent(pos);
+        if (chunkholder != null) {
+            Either<ChunkAccess, ChunkHolder.ChunkLoadingFailure> either = chunkholder.getFutureIfPresent(ChunkStatus.FULL).getNow(null);
+            if (either != null && either.left().orElse(null) instanceof LevelChunk levelChunk) {
+                return levelChunk;
             }
-            cir.setReturnValue(null);
         }
+        return null;
     }
 
 }
@@ -16,7 +16,7 @@ public class TileEntityRendererDispatcherMixin {
     @Inject(method = "getRenderer", at = @At(value = "HEAD"), cancellable = true)
     private <T extends BlockEntity> void injectGetRenderer(T tileEntity, CallbackInfoReturnable<BlockEntityRenderer<T>> cir) {
         if (tileEntity != null) {
-            if (tileEntity.getLevel() == Minecraft.getInstance().level && MultiblockWorldSavedData.modelDisabled.contains(tileEntity.getBlockPos())) {
+            if (tileEntity.getLevel() == Minecraft.getInstance().level && MultiblockWorldSavedData.modelDisabled.containsKey(tileEntity.getBlockPos().asLong())) {
                 cir.setReturnValue(null);
             }
         }
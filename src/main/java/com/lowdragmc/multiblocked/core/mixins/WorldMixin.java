@@ -1,6 +1,5 @@
 package com.lowdragmc.multiblocked.core.mixins;
 
-import com.lowdragmc.multiblocked.api.tile.IComponent;
 import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
 import net.minecraft.core.BlockPos;
 import net.minecraft.util.profiling.ProfilerFiller;
@@ -19,9 +18,6 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.spongepowered.asm.mixin.injection.callback.LocalCapture;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @Mixin(Level.class)
 public abstract class WorldMixin implements LevelAccessor {
 
@@ -35,23 +31,7 @@ public abstract class WorldMixin implements LevelAccessor {
     private void afterUpdatingEntities(CallbackInfo ci, ProfilerFiller profilerfiller) {
         profilerfiller.popPush("multiblocked_update");
         if (!((Level) (Object) this).isClientSide) {
-            List<IComponent> isRemoved = null;
-            MultiblockWorldSavedData mbds = MultiblockWorldSavedData.getOrCreate((Level) (Object) this);
-            for (IComponent loading : mbds.getLoadings()) {
-                if (loading.self().isRemoved()) {
-                    if (isRemoved == null) {
-                        isRemoved = new ArrayList<>();
-                    }
-                    isRemoved.add(loading);
-                } else {
-                    loading.update();
-                }
-            }
-            if (isRemoved != null) {
-                for (IComponent inValid : isRemoved) {
-                    mbds.removeLoading(inValid.self().getBlockPos());
-                }
-            }
+            MultiblockWorldSavedData.getOrCreate((Level) (Object) this).tickComponents();
         }
     }
 
@@ -31,11 +31,13 @@ public class ChunkRenderRebuildTaskMixin {
                                       boolean cull,
                                       long seed,
                                       IModelData modelData) {
-        MultiblockWorldSavedData.isBuildingChunk.set(true);
-        if (MultiblockWorldSavedData.isModelDisabled(pos)) {
-            MultiblockWorldSavedData.isBuildingChunk.set(false);
+        if (!MultiblockWorldSavedData.isSectionAffected(pos)) {
+            return blockRenderer.renderModel(world, state, pos, origin, model, buffers, cull, seed, modelData);
+        }
+        if (MultiblockWorldSavedData.isPositionDisabled(pos.getX(), pos.getY(), pos.getZ())) {
             return false;
         }
+        MultiblockWorldSavedData.isBuildingChunk.set(true);
         boolean result = blockRenderer.renderModel(world, state, pos, origin, model, buffers, cull, seed, modelData);
         MultiblockWorldSavedData.isBuildingChunk.set(false);
         return result;
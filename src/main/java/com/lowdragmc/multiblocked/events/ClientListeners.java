@@ -1,9 +1,11 @@
 package com.lowdragmc.multiblocked.events;
 
 import com.lowdragmc.multiblocked.Multiblocked;
+import com.lowdragmc.multiblocked.client.renderer.impl.GeoComponentRenderer;
 import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
 import net.minecraft.client.Minecraft;
 import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
@@ -22,4 +24,12 @@ public class ClientListeners {
             MultiblockWorldSavedData.clearDisabled();
         }
     }
+
+    @SubscribeEvent
+    public static void onRenderTick(TickEvent.RenderTickEvent event) {
+        if (event.phase == TickEvent.Phase.START) {
+            GeoComponentRenderer.onRenderFrame();
+            MultiblockWorldSavedData.flushRenderSections();
+        }
+    }
 }
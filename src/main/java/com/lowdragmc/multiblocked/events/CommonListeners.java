@@ -1,12 +1,17 @@
 package com.lowdragmc.multiblocked.events;
 
+import com.lowdragmc.multiblocked.MbdConfig;
 import com.lowdragmc.multiblocked.Multiblocked;
 import com.lowdragmc.multiblocked.api.capability.MultiblockCapability;
 import com.lowdragmc.multiblocked.api.definition.ControllerDefinition;
 import com.lowdragmc.multiblocked.api.pattern.BlockPattern;
 import com.lowdragmc.multiblocked.api.pattern.MultiblockState;
+import com.lowdragmc.multiblocked.api.profiler.MbdProfiler;
+import com.lowdragmc.multiblocked.api.recipe.RecipeMap;
 import com.lowdragmc.multiblocked.api.registry.MbdComponents;
+import com.lowdragmc.multiblocked.api.tile.ComponentTileEntity;
 import com.lowdragmc.multiblocked.api.tile.IControllerComponent;
+import com.lowdragmc.multiblocked.common.command.MbdCommands;
 import com.lowdragmc.multiblocked.persistence.MultiblockWorldSavedData;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -19,6 +24,9 @@ import net.minecraft.world.level.Level;
 import net.minecraft.world.level.LevelAccessor;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent;
 import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.WorldEvent;
@@ -45,6 +53,26 @@ public class CommonListeners {
         }
     }
 
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            MultiblockWorldSavedData.revalidateStructures(System.nanoTime() + MbdConfig.revalidationBudget.get() * 1000_000L);
+            ComponentTileEntity.flushPendingSyncs();
+            MbdProfiler.onServerTick();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onTagsUpdated(TagsUpdatedEvent event) {
+        // tags are applied after the recipes are reloaded, indexed ingredients may refer to the old tag contents.
+        RecipeMap.invalidateIndexes();
+    }
+
+    @SubscribeEvent
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        MbdCommands.register(event.getDispatcher());
+    }
+
     @SubscribeEvent
     public static void onChunkUnload(ChunkEvent.Unload event) {
         LevelAccessor world = event.getWorld();
@@ -59,7 +87,10 @@ public class CommonListeners {
     public static void onWorldUnLoad(WorldEvent.Unload event) {
         LevelAccessor world = event.getWorld();
         if (!world.isClientSide() && world instanceof Level) {
-            MultiblockWorldSavedData.getOrCreate((Level) world).releaseExecutorService();
+            MultiblockWorldSavedData mbwsd = MultiblockWorldSavedData.getOrCreate((Level) world);
+            mbwsd.releaseExecutorService();
+            mbwsd.clearRevalidation();
+            ComponentTileEntity.clearPendingSyncs((Level) world);
         }
     }
 
@@ -4,6 +4,7 @@ import com.lowdragmc.lowdraglib.networking.IPacket;
 import com.lowdragmc.lowdraglib.networking.Networking;
 import com.lowdragmc.multiblocked.Multiblocked;
 import com.lowdragmc.multiblocked.network.s2c.SPacketCommand;
+import com.lowdragmc.multiblocked.network.s2c.SPacketComponentSync;
 import com.lowdragmc.multiblocked.network.s2c.SPacketRemoveDisabledRendering;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
@@ -20,6 +21,7 @@ public class MultiblockedNetworking {
     public static void init() {
         network.registerS2C(SPacketRemoveDisabledRendering.class);
         network.registerS2C(SPacketCommand.class);
+        network.registerS2C(SPacketComponentSync.class);
     }
 
     public static void sendToServer(IPacket packet) {
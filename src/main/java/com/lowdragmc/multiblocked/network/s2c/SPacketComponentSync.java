@@ -0,0 +1,50 @@
+package com.lowdragmc.multiblocked.network.s2c;
+
+import com.lowdragmc.lowdraglib.networking.IPacket;
+import com.lowdragmc.multiblocked.api.tile.ComponentTileEntity;
+import io.netty.buffer.Unpooled;
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.network.NetworkEvent;
+
+/**
+ * Custom data of a component written within a tick, see {@link ComponentTileEntity#flushPendingSyncs()}.
+ */
+public class SPacketComponentSync implements IPacket {
+    private BlockPos pos;
+    private byte[] payload;
+
+    public SPacketComponentSync() {
+    }
+
+    public SPacketComponentSync(BlockPos pos, byte[] payload) {
+        this.pos = pos;
+        this.payload = payload;
+    }
+
+    @Override
+    public void encode(FriendlyByteBuf buf) {
+        buf.writeBlockPos(pos);
+        buf.writeByteArray(payload);
+    }
+
+    @Override
+    public void decode(FriendlyByteBuf buf) {
+        this.pos = buf.readBlockPos();
+        this.payload = buf.readByteArray();
+    }
+
+    @Override
+    @OnlyIn(Dist.CLIENT)
+    public void execute(NetworkEvent.Context handler) {
+        Level level = Minecraft.getInstance().level;
+        if (level != null && level.getBlockEntity(pos) instanceof ComponentTileEntity<?> component) {
+            component.receiveSyncPayload(new FriendlyByteBuf(Unpooled.wrappedBuffer(payload)));
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.lowdragmc.multiblocked.persistence;
+
+import com.lowdragmc.multiblocked.api.profiler.MbdProfiler;
+import com.lowdragmc.multiblocked.api.tile.IComponent;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Server updates of the loading components of a world, see {@link IComponent#getTickInterval()}.
+ * <br>
+ * Components are kept in array lists and removed by swapping with the last one.
+ * Components with an interval are spread over one list per phase, so only the list of the current phase is visited in a tick.
+ * Components only updated when woken are visited every {@link #SWEEP_INTERVAL} ticks to drop removed ones.
+ * Adding and removing while ticking are deferred to the end of the tick, the interval is checked again after each update.
+ */
+public class ComponentTickScheduler {
+    /**
+     * ticks between checks of removed components which are only updated when woken.
+     */
+    public static final int SWEEP_INTERVAL = 20;
+
+    private static class Entry {
+        private final IComponent component;
+        private int interval;
+        private TickList list;
+        private int index;
+        private long lastTick = Long.MIN_VALUE;
+        private boolean woken;
+        private boolean removed;
+
+        private Entry(IComponent component) {
+            this.component = component;
+        }
+    }
+
+    private static class TickList {
+        private Entry[] entries = new Entry[16];
+        private int size;
+
+        private void add(Entry entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size << 1);
+            }
+            entry.list = this;
+            entry.index = size;
+            entries[size++] = entry;
+        }
+
+        private void remove(Entry entry) {
+            Entry last = entries[--size];
+            entries[entry.index] = last;
+            last.index = entry.index;
+            entries[size] = null;
+            entry.list = null;
+        }
+    }
+
+    private final Reference2ObjectOpenHashMap<IComponent, Entry> entries = new Reference2ObjectOpenHashMap<>();
+    private final TickList everyTick = new TickList();
+    // interval -> lists per phase
+    private final Int2ObjectOpenHashMap<TickList[]> intervals = new Int2ObjectOpenHashMap<>();
+    private final TickList idle = new TickList();
+    private ObjectArrayList<Entry> woken = new ObjectArrayList<>();
+    private ObjectArrayList<Entry> waking = new ObjectArrayList<>();
+    private final ObjectArrayList<Entry> pending = new ObjectArrayList<>();
+    private int phase;
+    private long tick;
+    private boolean ticking;
+
+    public void add(IComponent component) {
+        if (entries.containsKey(component)) return;
+        Entry entry = new Entry(component);
+        entries.put(component, entry);
+        if (ticking) {
+            pending.add(entry);
+        } else {
+            schedule(entry, component.getTickInterval());
+        }
+    }
+
+    public void remove(IComponent component) {
+        Entry entry = entries.remove(component);
+        if (entry != null) {
+            entry.removed = true;
+            if (ticking) {
+                pending.add(entry);
+            } else if (entry.list != null) {
+                entry.list.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * update the component in the next tick, if it isn't updated every tick anyway.
+     */
+    public void wakeUp(IComponent component) {
+        Entry entry = entries.get(component);
+        if (entry != null && entry.interval != 1 && !entry.woken) {
+            entry.woken = true;
+            woken.add(entry);
+        }
+    }
+
+    /**
+     * @param onRemoved called for components found removed, they should be removed by it.
+     */
+    public void tick(Consumer<IComponent> onRemoved) {
+        tick++;
+        ticking = true;
+        try {
+            ObjectArrayList<Entry> current = woken;
+            woken = waking;
+            waking = current;
+            for (Entry entry : current) {
+                entry.woken = false;
+                update(entry, onRemoved);
+            }
+            current.clear();
+
+            updateList(everyTick, onRemoved);
+            for (Int2ObjectMap.Entry<TickList[]> lists : intervals.int2ObjectEntrySet()) {
+                updateList(lists.getValue()[(int) (tick % lists.getIntKey())], onRemoved);
+            }
+            if (tick % SWEEP_INTERVAL == 0) {
+                for (int i = 0; i < idle.size; i++) {
+                    Entry entry = idle.entries[i];
+                    if (!entry.removed && entry.component.self().isRemoved()) {
+                        onRemoved.accept(entry.component);
+                    }
+                }
+            }
+        } finally {
+            ticking = false;
+        }
+
+        for (Entry entry : pending) {
+            if (entry.removed) {
+                if (entry.list != null) {
+                    entry.list.remove(entry);
+                }
+            } else if (entry.list == null) { // added
+                schedule(entry, entry.component.getTickInterval());
+            } else { // rescheduled
+                entry.list.remove(entry);
+                schedule(entry, entry.interval);
+            }
+        }
+        pending.clear();
+    }
+
+    private void updateList(TickList list, Consumer<IComponent> onRemoved) {
+        // entries added or removed meanwhile are applied at the end of the tick.
+        for (int i = 0; i < list.size; i++) {
+            update(list.entries[i], onRemoved);
+        }
+    }
+
+    private void update(Entry entry, Consumer<IComponent> onRemoved) {
+        if (entry.removed || entry.lastTick == tick) return;
+        entry.lastTick = tick;
+        IComponent component = entry.component;
+        if (component.self().isRemoved()) {
+            onRemoved.accept(component);
+            return;
+        }
+        if (MbdProfiler.isEnabled()) {
+            long start = System.nanoTime();
+            component.update();
+            MbdProfiler.onUpdate(component, System.nanoTime() - start);
+        } else {
+            component.update();
+        }
+        int interval = Math.max(component.getTickInterval(), 0);
+        if (!entry.removed && interval != entry.interval) {
+            entry.interval = interval;
+            pending.add(entry);
+        }
+    }
+
+    private void schedule(Entry entry, int interval) {
+        entry.interval = Math.max(interval, 0);
+        if (entry.interval == 0) {
+            idle.add(entry);
+        } else if (entry.interval == 1) {
+            everyTick.add(entry);
+        } else {
+            TickList[] lists = intervals.computeIfAbsent(entry.interval, i -> {
+                TickList[] phases = new TickList[i];
+                Arrays.setAll(phases, p -> new TickList());
+                return phases;
+            });
+            // round robin, components of the same interval are spread evenly over the ticks.
+            lists[phase++ % lists.length].add(entry);
+            phase &= Integer.MAX_VALUE;
+        }
+    }
+
+}
@@ -2,26 +2,41 @@ package com.lowdragmc.multiblocked.persistence;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lowdragmc.lowdraglib.utils.DummyWorld;
+import com.lowdragmc.multiblocked.MbdConfig;
 import com.lowdragmc.multiblocked.Multiblocked;
 import com.lowdragmc.multiblocked.api.pattern.MultiblockState;
+import com.lowdragmc.multiblocked.api.profiler.MbdProfiler;
 import com.lowdragmc.multiblocked.api.tile.IComponent;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.client.renderer.LevelRenderer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.saveddata.SavedData;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
+import org.apache.commons.lang3.ArrayUtils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -29,13 +44,21 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MultiblockWorldSavedData extends SavedData {
 
@@ -55,21 +78,44 @@ public class MultiblockWorldSavedData extends SavedData {
         }
     };
 
+    // position -> count of structures disabling its model
     @OnlyIn(Dist.CLIENT)
-    public static Set<BlockPos> modelDisabled;
+    public static Long2IntOpenHashMap modelDisabled;
     @OnlyIn(Dist.CLIENT)
     public static Map<BlockPos, Collection<BlockPos>> multiDisabled;
+    // render sections to be rebuilt, see flushRenderSections
+    @OnlyIn(Dist.CLIENT)
+    private static LongLinkedOpenHashSet dirtySections;
 
     public final static ThreadLocal<Boolean> isBuildingChunk = ThreadLocal.withInitial(()-> Boolean.FALSE);
 
+    /**
+     * disabled positions published to the chunk builder threads, replaced as a whole on changes.
+     *
+     * @param masks section pos -> bitmask of the 4096 positions in the section.
+     * @param affected sections with disabled positions and their neighbours, whose faces are culled against them.
+     */
+    private record DisabledSections(Long2ObjectOpenHashMap<long[]> masks, LongOpenHashSet affected) { }
+    private static final DisabledSections NO_DISABLED_SECTIONS = new DisabledSections(new Long2ObjectOpenHashMap<>(), new LongOpenHashSet());
+    private static volatile DisabledSections disabledSections = NO_DISABLED_SECTIONS;
+
     static {
         if (Multiblocked.isClient()) {
-            modelDisabled = new HashSet<>();
+            modelDisabled = new Long2IntOpenHashMap();
             multiDisabled = new HashMap<>();
+            dirtySections = new LongLinkedOpenHashSet();
         }
     }
 
     private static WeakReference<Level> worldRef;
+    /**
+     * version of the saved format.
+     * <br>
+     * 0 - one byte array of absolute positions per controller.
+     * <br>
+     * 1 - controller relative run-length encoded positions, with the chunk index.
+     */
+    private static final int VERSION = 1;
 
     public static MultiblockWorldSavedData getOrCreate(Level world) {
         if (world == null || world instanceof DummyWorld) {
@@ -87,6 +133,11 @@ public class MultiblockWorldSavedData extends SavedData {
     public final Map<BlockPos, MultiblockState> mapping;
     public final Map<ChunkPos, Set<MultiblockState>> chunkPosMapping;
     public final Map<BlockPos, IComponent> loading;
+    private final ComponentTickScheduler tickScheduler = new ComponentTickScheduler();
+    // section pos -> (block pos -> structures)
+    private volatile Long2ObjectOpenHashMap<IndexSection> sectionIndex = new Long2ObjectOpenHashMap<>();
+    private final Map<MultiblockState, long[]> indexedPositions = new Object2ObjectOpenHashMap<>();
+    private final Map<MultiblockState, long[]> indexedChunks = new Object2ObjectOpenHashMap<>();
 
     public MultiblockWorldSavedData() {
         this.mapping = new Object2ObjectOpenHashMap<>();
@@ -102,6 +153,8 @@ public class MultiblockWorldSavedData extends SavedData {
     public static void clearDisabled() {
         modelDisabled.clear();
         multiDisabled.clear();
+        dirtySections.clear();
+        disabledSections = NO_DISABLED_SECTIONS;
     }
 
     public Collection<MultiblockState> getControllerInChunk(ChunkPos chunkPos) {
@@ -114,31 +167,165 @@ public class MultiblockWorldSavedData extends SavedData {
 
     public void addMapping(MultiblockState state) {
         this.mapping.put(state.controllerPos, state);
-        for (BlockPos blockPos : state.getCache()) {
-            chunkPosMapping.computeIfAbsent(new ChunkPos(blockPos), c->new HashSet<>()).add(state);
-        }
+        long[] positions = state.cache.toLongArray();
+        long[] chunks = state.getChunks();
+        removeChunkMapping(state, indexedChunks.put(state, chunks));
+        addChunkMapping(state, chunks);
+        updateIndex(state, indexedPositions.put(state, positions), positions);
         setDirty(true);
     }
 
     public void removeMapping(MultiblockState state) {
         this.mapping.remove(state.controllerPos);
-        for (Set<MultiblockState> set : chunkPosMapping.values()) {
-            set.remove(state);
-        }
+        removeChunkMapping(state, indexedChunks.remove(state));
+        updateIndex(state, indexedPositions.remove(state), null);
+        revalidating.remove(state);
         setDirty(true);
     }
 
+    private void addChunkMapping(MultiblockState state, long[] chunks) {
+        for (long chunk : chunks) {
+            chunkPosMapping.computeIfAbsent(new ChunkPos(chunk), c->new HashSet<>()).add(state);
+        }
+    }
+
+    private void removeChunkMapping(MultiblockState state, @Nullable long[] chunks) {
+        if (chunks == null) return;
+        for (long chunk : chunks) {
+            ChunkPos chunkPos = new ChunkPos(chunk);
+            Set<MultiblockState> set = chunkPosMapping.get(chunkPos);
+            if (set != null && set.remove(state) && set.isEmpty()) {
+                chunkPosMapping.remove(chunkPos);
+            }
+        }
+    }
+
+    /**
+     * Update the mapping of a formed structure whose cached positions may have changed after a full check.
+     */
+    public void updateMapping(MultiblockState state) {
+        long[] indexed = indexedPositions.get(state);
+        if (indexed == null || mapping.get(state.controllerPos) != state) return;
+        if (indexed.length == state.cache.size()) {
+            boolean changed = false;
+            for (long pos : indexed) {
+                if (!state.cache.contains(pos)) {
+                    changed = true;
+                    break;
+                }
+            }
+            if (!changed) return;
+        }
+        addMapping(state);
+    }
+
+    // ********************************* spatial index ********************************* //
+
+    /**
+     * Structures whose cached positions contain the given pos. It can be called from any thread.
+     *
+     * @return null - no structure at this pos.
+     */
+    @Nullable
+    public MultiblockState[] getStructuresAt(BlockPos pos) {
+        IndexSection section = sectionIndex.get(SectionPos.blockToSection(pos.asLong()));
+        if (section == null) return null;
+        Long2ObjectOpenHashMap<MultiblockState[]> positions = section.positions;
+        return positions == null ? null : positions.get(pos.asLong());
+    }
+
+    /**
+     * Positions of a section are copied on write, so readers of other threads always see a consistent section.
+     * Emptied sections stay in the index until new sections are added, so re-formations don't copy the top level map.
+     */
+    private static class IndexSection {
+        // null - no structure in this section.
+        @Nullable
+        private volatile Long2ObjectOpenHashMap<MultiblockState[]> positions;
+
+        private IndexSection(Long2ObjectOpenHashMap<MultiblockState[]> positions) {
+            this.positions = positions;
+        }
+    }
+
+    private void updateIndex(MultiblockState state, @Nullable long[] removed, @Nullable long[] added) {
+        if (removed == null && added == null) return;
+        // section pos -> copy of its positions
+        Long2ObjectOpenHashMap<Long2ObjectOpenHashMap<MultiblockState[]>> writing = new Long2ObjectOpenHashMap<>();
+        if (removed != null) {
+            for (long pos : removed) {
+                Long2ObjectOpenHashMap<MultiblockState[]> section = getWritableSection(writing, SectionPos.blockToSection(pos));
+                MultiblockState[] states = section.get(pos);
+                if (states != null) {
+                    states = ArrayUtils.removeElement(states, state);
+                    if (states.length == 0) {
+                        section.remove(pos);
+                    } else {
+                        section.put(pos, states);
+                    }
+                }
+            }
+        }
+        if (added != null) {
+            for (long pos : added) {
+                Long2ObjectOpenHashMap<MultiblockState[]> section = getWritableSection(writing, SectionPos.blockToSection(pos));
+                MultiblockState[] states = section.get(pos);
+                section.put(pos, states == null ? new MultiblockState[]{state} : ArrayUtils.add(states, state));
+            }
+        }
+        Long2ObjectOpenHashMap<IndexSection> index = sectionIndex;
+        Long2ObjectOpenHashMap<IndexSection> newSections = null;
+        for (Long2ObjectMap.Entry<Long2ObjectOpenHashMap<MultiblockState[]>> entry : writing.long2ObjectEntrySet()) {
+            Long2ObjectOpenHashMap<MultiblockState[]> positions = entry.getValue().isEmpty() ? null : entry.getValue();
+            IndexSection section = index.get(entry.getLongKey());
+            if (section != null) {
+                section.positions = positions;
+            } else if (positions != null) {
+                if (newSections == null) {
+                    newSections = new Long2ObjectOpenHashMap<>();
+                }
+                newSections.put(entry.getLongKey(), new IndexSection(positions));
+            }
+        }
+        if (newSections != null) { // copy the top level map, emptied sections are dropped meanwhile.
+            Long2ObjectOpenHashMap<IndexSection> copy = new Long2ObjectOpenHashMap<>(index.size() + newSections.size());
+            for (Long2ObjectMap.Entry<IndexSection> entry : index.long2ObjectEntrySet()) {
+                if (entry.getValue().positions != null) {
+                    copy.put(entry.getLongKey(), entry.getValue());
+                }
+            }
+            copy.putAll(newSections);
+            sectionIndex = copy;
+        }
+    }
+
+    private Long2ObjectOpenHashMap<MultiblockState[]> getWritableSection(Long2ObjectOpenHashMap<Long2ObjectOpenHashMap<MultiblockState[]>> writing, long sectionPos) {
+        Long2ObjectOpenHashMap<MultiblockState[]> positions = writing.get(sectionPos);
+        if (positions == null) {
+            IndexSection section = sectionIndex.get(sectionPos);
+            Long2ObjectOpenHashMap<MultiblockState[]> current = section == null ? null : section.positions;
+            positions = current == null ? new Long2ObjectOpenHashMap<>() : new Long2ObjectOpenHashMap<>(current);
+            writing.put(sectionPos, positions);
+        }
+        return positions;
+    }
+
     public void addLoading(IComponent tileEntity) {
-        IComponent last = loading.put(tileEntity.self().getBlockPos(), tileEntity);
+        BlockPos pos = tileEntity.self().getBlockPos();
+        IComponent last = loading.put(pos, tileEntity);
         if (last != tileEntity) {
+            if (last != null) {
+                tickScheduler.remove(last);
+            }
+            tickScheduler.add(tileEntity);
             if (last instanceof IAsyncThreadUpdate) {
-                asyncComponents.remove(last);
-                if (asyncComponents.isEmpty()) {
+                removeAsyncComponent(pos, (IAsyncThreadUpdate) last);
+                if (asyncBatches.isEmpty()) {
                     releaseExecutorService();
                 }
             }
             if (tileEntity instanceof IAsyncThreadUpdate) {
-                asyncComponents.add((IAsyncThreadUpdate) tileEntity);
+                asyncBatches.computeIfAbsent(getRegion(pos), r -> new AsyncBatch()).components.add((IAsyncThreadUpdate) tileEntity);
                 createExecutorService();
             }
         }
@@ -146,114 +333,505 @@ public class MultiblockWorldSavedData extends SavedData {
 
     public void removeLoading(BlockPos componentPos) {
         IComponent component = loading.remove(componentPos);
+        if (component != null) {
+            tickScheduler.remove(component);
+        }
         if (component instanceof IAsyncThreadUpdate) {
-            asyncComponents.remove(component);
-            if (asyncComponents.isEmpty()) {
+            removeAsyncComponent(componentPos, (IAsyncThreadUpdate) component);
+            if (asyncBatches.isEmpty()) {
                 releaseExecutorService();
             }
         }
     }
 
+    /**
+     * update the loading components of this tick, removed components are unloaded.
+     */
+    public void tickComponents() {
+        tickScheduler.tick(component -> {
+            BlockPos pos = component.self().getBlockPos();
+            if (loading.get(pos) == component) {
+                removeLoading(pos);
+            } else {
+                tickScheduler.remove(component);
+            }
+        });
+    }
+
+    /**
+     * update a loading component in the next tick, see {@link IComponent#getTickInterval()}.
+     */
+    public void wakeUp(IComponent component) {
+        if (!isThreadService()) {
+            tickScheduler.wakeUp(component);
+        }
+    }
+
      @OnlyIn(Dist.CLIENT)
     public static void removeDisableModel(BlockPos controllerPos) {
         Collection<BlockPos> poses = multiDisabled.remove(controllerPos);
         if (poses == null) return;
-        modelDisabled.clear();
-        multiDisabled.values().forEach(modelDisabled::addAll);
+        releaseDisabled(poses);
+        publishDisabled(poses);
         updateRenderChunk(poses);
     }
 
+     @OnlyIn(Dist.CLIENT)
+    private static void releaseDisabled(Collection<BlockPos> poses) {
+        for (BlockPos pos : poses) {
+            long key = pos.asLong();
+            if (modelDisabled.addTo(key, -1) <= 1) {
+                modelDisabled.remove(key);
+            }
+        }
+    }
+
+    /**
+     * queue the render sections of the positions, including the sections of their neighbours whose faces are culled against them.
+     */
      @OnlyIn(Dist.CLIENT)
     private static void updateRenderChunk(Collection<BlockPos> poses) {
-         ClientLevel world = Minecraft.getInstance().level;
-        if (world != null) {
-            for (BlockPos pos : poses) {
-                BlockState state = world.getBlockState(pos);
-                world.sendBlockUpdated(pos, state, state, 1 << 3);
+        for (BlockPos pos : poses) {
+            for (int x = (pos.getX() - 1) >> 4; x <= (pos.getX() + 1) >> 4; x++) {
+                for (int y = (pos.getY() - 1) >> 4; y <= (pos.getY() + 1) >> 4; y++) {
+                    for (int z = (pos.getZ() - 1) >> 4; z <= (pos.getZ() + 1) >> 4; z++) {
+                        dirtySections.add(SectionPos.asLong(x, y, z));
+                    }
+                }
             }
         }
     }
 
+    /**
+     * rebuild the queued render sections within the budget per frame.
+     */
+     @OnlyIn(Dist.CLIENT)
+    public static void flushRenderSections() {
+        if (dirtySections.isEmpty()) return;
+        if (Minecraft.getInstance().level == null) {
+            dirtySections.clear();
+            return;
+        }
+        LevelRenderer renderer = Minecraft.getInstance().levelRenderer;
+        for (int i = MbdConfig.renderSectionBudget.get(); i > 0 && !dirtySections.isEmpty(); i--) {
+            long section = dirtySections.removeFirstLong();
+            renderer.setSectionDirty(SectionPos.x(section), SectionPos.y(section), SectionPos.z(section));
+        }
+    }
+
      @OnlyIn(Dist.CLIENT)
     public static void addDisableModel(BlockPos controllerPos, Collection<BlockPos> poses) {
-        multiDisabled.put(controllerPos, poses);
-        modelDisabled.addAll(poses);
+        Collection<BlockPos> old = multiDisabled.put(controllerPos, poses);
+        if (old != null) {
+            releaseDisabled(old);
+            publishDisabled(old);
+            updateRenderChunk(old);
+        }
+        for (BlockPos pos : poses) {
+            modelDisabled.addTo(pos.asLong(), 1);
+        }
+        publishDisabled(poses);
         updateRenderChunk(poses);
     }
 
+    /**
+     * copy the masks of the sections of the changed positions from the current counts and publish them.
+     */
      @OnlyIn(Dist.CLIENT)
-    public static boolean isModelDisabled(BlockPos pos) {
-        if (isBuildingChunk.get()) {
-            return modelDisabled.contains(pos);
+    private static void publishDisabled(Collection<BlockPos> poses) {
+        if (poses.isEmpty()) return;
+        Long2ObjectOpenHashMap<long[]> masks = new Long2ObjectOpenHashMap<>(disabledSections.masks);
+        LongOpenHashSet copied = new LongOpenHashSet();
+        for (BlockPos pos : poses) {
+            long section = SectionPos.asLong(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4);
+            long[] mask = masks.get(section);
+            if (copied.add(section)) {
+                mask = mask == null ? new long[64] : mask.clone();
+                masks.put(section, mask);
+            }
+            int index = sectionIndex(pos.getX(), pos.getY(), pos.getZ());
+            if (modelDisabled.containsKey(pos.asLong())) {
+                mask[index >>> 6] |= 1L << index;
+            } else {
+                mask[index >>> 6] &= ~(1L << index);
+            }
+        }
+        for (long section : copied) {
+            if (Arrays.stream(masks.get(section)).allMatch(bits -> bits == 0)) {
+                masks.remove(section);
+            }
         }
-        return false;
+        LongOpenHashSet affected = new LongOpenHashSet();
+        for (long section : masks.keySet()) {
+            affected.add(section);
+            for (Direction direction : Direction.values()) {
+                affected.add(SectionPos.offset(section, direction));
+            }
+        }
+        disabledSections = masks.isEmpty() ? NO_DISABLED_SECTIONS : new DisabledSections(masks, affected);
+    }
+
+    private static int sectionIndex(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    /**
+     * whether the block in the section or its neighbours may be disabled, checked before anything else while meshing.
+     */
+    public static boolean isSectionAffected(BlockPos pos) {
+        DisabledSections sections = disabledSections;
+        return !sections.affected.isEmpty() && sections.affected.contains(SectionPos.asLong(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4));
+    }
+
+    /**
+     * whether the model at the position is disabled, regardless of the calling thread.
+     */
+    public static boolean isPositionDisabled(int x, int y, int z) {
+        DisabledSections sections = disabledSections;
+        if (sections.masks.isEmpty()) return false;
+        long[] mask = sections.masks.get(SectionPos.asLong(x >> 4, y >> 4, z >> 4));
+        if (mask == null) return false;
+        int index = sectionIndex(x, y, z);
+        return (mask[index >>> 6] & (1L << index)) != 0;
+    }
+
+     @OnlyIn(Dist.CLIENT)
+    public static boolean isModelDisabled(BlockPos pos) {
+        return isPositionDisabled(pos.getX(), pos.getY(), pos.getZ()) && isBuildingChunk.get();
+    }
+
+    /**
+     * whether the model of the neighbour at the facing is disabled, without creating the neighbour position.
+     */
+     @OnlyIn(Dist.CLIENT)
+    public static boolean isModelDisabled(BlockPos pos, Direction facing) {
+        return isPositionDisabled(pos.getX() + facing.getStepX(), pos.getY() + facing.getStepY(), pos.getZ() + facing.getStepZ())
+                && isBuildingChunk.get();
     }
 
     public void load(CompoundTag nbt) {
+        if (!nbt.contains("version")) { // migrate from the old layout, it will be saved in the current format.
+            loadLegacy(nbt);
+            setDirty(true);
+        } else {
+            ListTag structures = nbt.getList("structures", Tag.TAG_COMPOUND);
+            for (int i = 0; i < structures.size(); i++) {
+                CompoundTag tag = structures.getCompound(i);
+                BlockPos pos = BlockPos.of(tag.getLong("pos"));
+                MultiblockState state = new MultiblockState(getLoadingWorld(), pos);
+                state.cache = MultiblockState.readPositions(new FriendlyByteBuf(Unpooled.wrappedBuffer(tag.getByteArray("data"))), pos);
+                putLoadedMapping(state, tag.getLongArray("chunks"));
+            }
+        }
+        rebuildIndex();
+    }
+
+    @Nullable
+    private static Level getLoadingWorld() {
+        return worldRef == null ? null : worldRef.get();
+    }
+
+    private void loadLegacy(CompoundTag nbt) {
         for (String key : nbt.getAllKeys()) {
             BlockPos pos = BlockPos.of(Long.parseLong(key));
-            MultiblockState state = new MultiblockState(worldRef.get(), pos);
+            MultiblockState state = new MultiblockState(getLoadingWorld(), pos);
             state.deserialize(new FriendlyByteBuf(Unpooled.copiedBuffer(nbt.getByteArray(key))));
-            this.mapping.put(pos, state);
-            for (BlockPos blockPos : state.getCache()) {
-                chunkPosMapping.computeIfAbsent(new ChunkPos(blockPos), c->new HashSet<>()).add(state);
-            }
+            putLoadedMapping(state, state.getChunks());
         }
     }
 
+    private void putLoadedMapping(MultiblockState state, long[] chunks) {
+        this.mapping.put(state.controllerPos, state);
+        indexedPositions.put(state, state.cache.toLongArray());
+        indexedChunks.put(state, chunks);
+        addChunkMapping(state, chunks);
+    }
+
+    private void rebuildIndex() {
+        Long2ObjectOpenHashMap<IndexSection> index = new Long2ObjectOpenHashMap<>();
+        indexedPositions.forEach((state, positions) -> {
+            for (long pos : positions) {
+                Long2ObjectOpenHashMap<MultiblockState[]> section = index.computeIfAbsent(SectionPos.blockToSection(pos), s -> new IndexSection(new Long2ObjectOpenHashMap<>())).positions;
+                MultiblockState[] states = section.get(pos);
+                section.put(pos, states == null ? new MultiblockState[]{state} : ArrayUtils.add(states, state));
+            }
+        });
+        sectionIndex = index;
+    }
+
     @Nonnull
     @Override
     public CompoundTag save(@Nonnull CompoundTag compound) {
+        compound.putInt("version", VERSION);
+        ListTag structures = new ListTag();
         this.mapping.forEach((pos, state) -> {
+            long[] positions = indexedPositions.get(state);
+            long[] chunks = indexedChunks.get(state);
+            if (positions == null || chunks == null) {
+                positions = state.cache.toLongArray();
+                chunks = state.getChunks();
+            }
             ByteBuf byteBuf = Unpooled.buffer();
-            state.serialize(new FriendlyByteBuf(byteBuf));
-            compound.putByteArray(String.valueOf(pos.asLong()), Arrays.copyOfRange(byteBuf.array(), 0, byteBuf.writerIndex()));
+            MultiblockState.writePositions(new FriendlyByteBuf(byteBuf), pos, positions);
+            CompoundTag tag = new CompoundTag();
+            tag.putLong("pos", pos.asLong());
+            tag.putByteArray("data", Arrays.copyOfRange(byteBuf.array(), 0, byteBuf.writerIndex()));
+            tag.putLongArray("chunks", chunks);
+            structures.add(tag);
         });
+        compound.put("structures", structures);
         return compound;
     }
 
+    // ********************************* revalidation of loaded structures ********************************* //
+
+    private static final Set<MultiblockWorldSavedData> REVALIDATING = new ObjectLinkedOpenHashSet<>();
+    private final ObjectLinkedOpenHashSet<MultiblockState> revalidating = new ObjectLinkedOpenHashSet<>();
+
+    /**
+     * Queue a full pattern check of the loaded structure, server thread only.
+     */
+    public void addRevalidation(MultiblockState state) {
+        if (revalidating.add(state)) {
+            REVALIDATING.add(this);
+        }
+    }
+
+    public int getRevalidationQueueSize() {
+        return revalidating.size();
+    }
+
+    public void clearRevalidation() {
+        revalidating.clear();
+        REVALIDATING.remove(this);
+    }
+
+    /**
+     * Check queued structures of all levels until the deadline. At least one structure is checked per call.
+     * Structures queued again while checking wait for the next call.
+     */
+    public static void revalidateStructures(long deadline) {
+        if (REVALIDATING.isEmpty()) return;
+        for (MultiblockWorldSavedData mbwsd : REVALIDATING.toArray(MultiblockWorldSavedData[]::new)) {
+            for (int queued = mbwsd.revalidating.size(); queued > 0 && !mbwsd.revalidating.isEmpty(); queued--) {
+                mbwsd.revalidating.removeFirst().revalidate();
+                if (System.nanoTime() >= deadline) break;
+            }
+            if (mbwsd.revalidating.isEmpty()) {
+                REVALIDATING.remove(mbwsd);
+            }
+            if (System.nanoTime() >= deadline) break;
+        }
+    }
+
+    /**
+     * queue depth of all levels.
+     */
+    public static int getPendingRevalidations() {
+        int size = 0;
+        for (MultiblockWorldSavedData mbwsd : REVALIDATING) {
+            size += mbwsd.revalidating.size();
+        }
+        return size;
+    }
+
     // ********************************* thread for searching ********************************* //
-    private final CopyOnWriteArrayList<IAsyncThreadUpdate> asyncComponents = new CopyOnWriteArrayList<>();
-    private ScheduledExecutorService executorService;
     private final static ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
-            .setNameFormat("Multiblocked Async Thread-%d")
+            .setNameFormat("Multiblocked Async Scheduler-%d")
             .setDaemon(true)
             .build();
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger();
+    private final static ForkJoinPool.ForkJoinWorkerThreadFactory WORKER_FACTORY = pool -> {
+        ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {};
+        thread.setName("Multiblocked Async Thread-" + WORKER_COUNT.getAndIncrement());
+        thread.setContextClassLoader(Multiblocked.class.getClassLoader());
+        return thread;
+    };
     private static final ThreadLocal<Boolean> IN_SERVICE = ThreadLocal.withInitial(()->false);
-    private long periodID = Long.MIN_VALUE;
+    private static final Set<MultiblockWorldSavedData> SERVICES = ConcurrentHashMap.newKeySet();
+    private static ScheduledExecutorService scheduler;
+    private static volatile ForkJoinPool pool;
+    /**
+     * components are batched by regions of 4x4 chunks.
+     */
+    private static final int REGION_SHIFT = 6;
+
+    private final Map<Long, AsyncBatch> asyncBatches = new ConcurrentHashMap<>();
+    private volatile long periodID = Long.MIN_VALUE;
+
+    private static long getRegion(BlockPos pos) {
+        return ChunkPos.asLong(pos.getX() >> REGION_SHIFT, pos.getZ() >> REGION_SHIFT);
+    }
+
+    private void removeAsyncComponent(BlockPos pos, IAsyncThreadUpdate component) {
+        long region = getRegion(pos);
+        AsyncBatch batch = asyncBatches.get(region);
+        if (batch != null) {
+            batch.components.remove(component);
+            if (batch.components.isEmpty()) {
+                asyncBatches.remove(region, batch);
+            }
+        }
+    }
 
     public void createExecutorService() {
-        if (executorService != null && !executorService.isShutdown()) return;
-        executorService = Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY);
-        executorService.scheduleAtFixedRate(this::searchingTask, 0, 250, TimeUnit.MILLISECONDS);
+        if (SERVICES.add(this)) {
+            startService();
+        }
     }
 
-    private void searchingTask() {
-        try {
-            IN_SERVICE.set(true);
-            for (IAsyncThreadUpdate asyncComponent : asyncComponents) {
-                asyncComponent.asyncThreadLogic(periodID);
+    private static synchronized void startService() {
+        if (scheduler != null) return;
+        int threads = MbdConfig.asyncThreads.get();
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+        pool = new ForkJoinPool(threads, WORKER_FACTORY, null, true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY);
+        scheduler.scheduleAtFixedRate(MultiblockWorldSavedData::searchingTask, 0, 250, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized void stopService() {
+        if (scheduler == null || !SERVICES.isEmpty()) return;
+        scheduler.shutdownNow();
+        pool.shutdownNow();
+        scheduler = null;
+        pool = null;
+    }
+
+    /**
+     * One period of all levels. Batches are handled in parallel, the period ends once all batches are done or the time budget is exceeded.
+     * Batches still running are skipped, they continue in the next period.
+     */
+    private static void searchingTask() {
+        ForkJoinPool pool = MultiblockWorldSavedData.pool;
+        if (pool == null) return;
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(MbdConfig.asyncPeriodBudget.get());
+        List<MultiblockWorldSavedData> services = new ArrayList<>(SERVICES);
+        List<AsyncBatch> batches = new ArrayList<>();
+        LongList periods = new LongArrayList();
+        for (MultiblockWorldSavedData service : services) {
+            for (AsyncBatch batch : service.asyncBatches.values()) {
+                if (batch.running.compareAndSet(false, true)) {
+                    batches.add(batch);
+                    periods.add(service.periodID);
+                }
+            }
+        }
+        CountDownLatch latch = new CountDownLatch(batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            AsyncBatch batch = batches.get(i);
+            long period = periods.getLong(i);
+            try {
+                pool.execute(() -> {
+                    try {
+                        batch.run(period, deadline);
+                    } finally {
+                        batch.running.set(false);
+                        latch.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException e) { // pool has been shut down
+                batch.running.set(false);
+                latch.countDown();
             }
-            IN_SERVICE.set(false);
-        } catch (Throwable e) {
-            Multiblocked.LOGGER.error("asyncThreadLogic error: {}", e.getMessage());
         }
-        periodID++;
+        try {
+            latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (MultiblockWorldSavedData service : services) {
+            service.periodID++;
+        }
+        if (MbdProfiler.isEnabled()) {
+            MbdProfiler.onAsyncPeriod(System.nanoTime() - start);
+        }
     }
 
     public static boolean isThreadService() {
         return IN_SERVICE.get();
     }
 
+    /**
+     * thread count of the async pool, 0 if it isn't running.
+     */
+    public static int getAsyncParallelism() {
+        ForkJoinPool pool = MultiblockWorldSavedData.pool;
+        return pool == null ? 0 : pool.getParallelism();
+    }
+
+    /**
+     * run a task on the async pool, it reads levels through the same off-thread path as async components.
+     *
+     * @return false - the pool isn't running.
+     */
+    public static boolean executeAsync(Runnable task) {
+        ForkJoinPool pool = MultiblockWorldSavedData.pool;
+        if (pool == null) return false;
+        try {
+            pool.execute(() -> {
+                boolean inService = IN_SERVICE.get();
+                IN_SERVICE.set(true);
+                try {
+                    task.run();
+                } finally {
+                    IN_SERVICE.set(inService);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) { // pool has been shut down
+            return false;
+        }
+    }
+
     public void releaseExecutorService() {
-        if (executorService != null) {
-            executorService.shutdownNow();
+        if (SERVICES.remove(this)) {
+            stopService();
         }
-        executorService = null;
     }
 
     public long getPeriodID() {
         return periodID;
     }
 
+    private static class AsyncBatch {
+        private final CopyOnWriteArrayList<IAsyncThreadUpdate> components = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+        private int cursor;
+
+        /**
+         * handle components from the cursor, save the cursor and stop once the deadline is exceeded.
+         */
+        private void run(long periodID, long deadline) {
+            IN_SERVICE.set(true);
+            try {
+                int size = components.size();
+                int start = cursor;
+                for (int i = 0; i < size; i++) {
+                    int index = (start + i) % size;
+                    if (i > 0 && System.nanoTime() > deadline) {
+                        cursor = index;
+                        return;
+                    }
+                    IAsyncThreadUpdate asyncComponent;
+                    try {
+                        asyncComponent = components.get(index);
+                    } catch (IndexOutOfBoundsException e) { // removed meanwhile
+                        break;
+                    }
+                    try {
+                        asyncComponent.asyncThreadLogic(periodID);
+                    } catch (Throwable e) {
+                        Multiblocked.LOGGER.error("asyncThreadLogic error: {}", e.getMessage());
+                    }
+                }
+            } finally {
+                IN_SERVICE.set(false);
+            }
+        }
+    }
+
 }